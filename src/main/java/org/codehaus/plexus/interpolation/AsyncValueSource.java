@@ -0,0 +1,65 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Implemented by value sources whose lookups are slow, for instance because they run an external command, and that
+ * can perform them without blocking the caller. {@link StringSearchInterpolator#interpolateAsync(String)} starts the
+ * lookups of all expressions of an input at once and waits for them together, instead of one after the other.
+ * Plain {@link #getValue(String)} calls block until the lookup completes.
+ *
+ * @since 1.30
+ */
+public interface AsyncValueSource extends ValueSource {
+
+    /**
+     * @param expression The string expression.
+     * @return a future of the value related to the expression, which completes with {@code null} if not found.
+     */
+    CompletableFuture<Object> getValueAsync(String expression);
+
+    /**
+     * Called instead of {@link #getValueAsync(String)} by interpolations that have a deadline. Implementations may
+     * give up once it expires, see {@link InterpolationDeadline#addExpiryListener(Runnable)}; the interpolation does
+     * not wait for them beyond that point anyway.
+     *
+     * @param expression The string expression.
+     * @param deadline The deadline of the interpolation asking.
+     * @return a future of the value related to the expression, which completes with {@code null} if not found.
+     */
+    default CompletableFuture<Object> getValueAsync(String expression, InterpolationDeadline deadline) {
+        return getValueAsync(expression);
+    }
+
+    /**
+     * Waits for {@link #getValueAsync(String)} to complete.
+     */
+    @Override
+    default Object getValue(String expression) {
+        try {
+            return getValueAsync(expression).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
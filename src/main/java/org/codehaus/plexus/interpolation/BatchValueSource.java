@@ -0,0 +1,39 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Implemented by value sources that can answer many expressions in a single call more cheaply than one at a time,
+ * for example because every lookup is a round trip to an external store. When batch lookups are enabled on the
+ * {@link StringSearchInterpolator}, the expressions of an input are collected first and handed to
+ * {@link #getValues(Collection)} at once; expressions that only turn up later, or that the batch answer cannot be
+ * used for, are still resolved through {@link #getValue(String, String, String)}.
+ *
+ * @since 1.30
+ */
+public interface BatchValueSource extends ValueSource {
+
+    /**
+     * @param expressions The expressions to resolve, without delimiters.
+     * @return the values of the expressions that could be resolved. Expressions that are missing from the map, or
+     * mapped to {@code null}, are treated as not found by this value source.
+     */
+    Map<String, Object> getValues(Collection<String> expressions);
+}
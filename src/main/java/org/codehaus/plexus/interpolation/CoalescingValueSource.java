@@ -0,0 +1,70 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.interpolation.util.SingleFlight;
+
+/**
+ * Wraps a value source that is expensive to ask and shared by interpolations running in several threads at once.
+ * Concurrent lookups of the same expression share a single call to the wrapped value source, and the value found may
+ * be remembered for a while. Values are shared per expression, whatever the delimiters of the interpolator asking.
+ *
+ * @see org.codehaus.plexus.interpolation.fixed.CoalescingValueSource
+ * @since 1.30
+ */
+public class CoalescingValueSource extends AbstractDelegatingValueSource {
+
+    private final SingleFlight<String, Object> values;
+
+    /**
+     * Share lookups that are in progress, but do not remember their values.
+     *
+     * @param delegate The value source to wrap
+     */
+    public CoalescingValueSource(ValueSource delegate) {
+        this(delegate, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param delegate The value source to wrap
+     * @param ttl      how long to remember the value of an expression, not found included; 0 not to remember values
+     * @param unit     the unit of ttl
+     */
+    public CoalescingValueSource(ValueSource delegate, long ttl, TimeUnit unit) {
+        super(delegate);
+        this.values = new SingleFlight<String, Object>(ttl, unit);
+    }
+
+    @Override
+    public Object getValue(final String expression, final String delimiterStart, final String delimiterEnd) {
+        return values.get(expression, key -> getDelegate().getValue(key, delimiterStart, delimiterEnd));
+    }
+
+    @Override
+    public Object getValue(String expression) {
+        return values.get(expression, key -> getDelegate().getValue(key));
+    }
+
+    /**
+     * Forget all remembered values, so they are looked up again.
+     */
+    public void clear() {
+        values.clear();
+    }
+}
@@ -0,0 +1,35 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Map;
+
+/**
+ * Implemented by value sources that are backed by a fixed set of expressions, such as a {@link java.util.Map} or
+ * {@link java.util.Properties}, and can therefore list everything they are able to resolve. This allows analysis of
+ * the expressions ahead of interpolation, see {@link ExpressionCycleDetector}.
+ *
+ * @since 1.30
+ */
+public interface EnumerableValueSource {
+
+    /**
+     * @return every expression this value source can resolve, mapped to its raw (not yet interpolated) value. Only
+     * expressions that would actually be answered are included, so neither keys nor values are null.
+     */
+    Map<String, Object> getEntries();
+}
@@ -0,0 +1,52 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Signals that interpolating a string needed more expression lookups, or produced more output, than the limits
+ * configured on the interpolator allow. This protects against inputs whose expressions expand exponentially, such
+ * as <code>a=${b}${b}</code>, <code>b=${c}${c}</code>, ...
+ *
+ * @since 1.30
+ */
+public class ExpansionLimitExceededException extends InterpolationException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> expressionPath;
+
+    /**
+     * @param message The limit that was exceeded
+     * @param expression The expression being resolved when the limit was exceeded
+     * @param expressionPath The nested expressions being resolved at that point, outermost first
+     */
+    public ExpansionLimitExceededException(String message, String expression, List<String> expressionPath) {
+        super(message + " (expression path: " + expressionPath + ")", expression);
+        this.expressionPath = Collections.unmodifiableList(new ArrayList<String>(expressionPath));
+    }
+
+    /**
+     * @return The nested expressions being resolved when the limit was exceeded, outermost first.
+     */
+    public List<String> getExpressionPath() {
+        return expressionPath;
+    }
+}
@@ -0,0 +1,211 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds all expression cycles among the values of one or more {@link EnumerableValueSource}s up front, rather than
+ * one at a time in the middle of an interpolation. Each value is scanned for the expressions it references, which
+ * makes up a graph of references between expressions; the strongly connected components of that graph (found with
+ * Tarjan's algorithm) are exactly the sets of expressions that can never be resolved because they reference each
+ * other.
+ * <p>
+ * Value sources are consulted in the order they were added, the same way the interpolators do: when several sources
+ * know an expression, the first one wins.</p>
+ *
+ * @since 1.30
+ */
+public class ExpressionCycleDetector {
+
+    private final String startExpr;
+
+    private final String endExpr;
+
+    private String escapeString;
+
+    private final Map<String, Object> entries = new LinkedHashMap<String, Object>();
+
+    /**
+     * Use the default <code>${</code> and <code>}</code> expression delimiters.
+     */
+    public ExpressionCycleDetector() {
+        this(StringSearchInterpolator.DEFAULT_START_EXPR, StringSearchInterpolator.DEFAULT_END_EXPR);
+    }
+
+    /**
+     * @param startExpr The start delimiter of expressions in the values
+     * @param endExpr The end delimiter of expressions in the values
+     */
+    public ExpressionCycleDetector(String startExpr, String endExpr) {
+        this.startExpr = startExpr;
+        this.endExpr = endExpr;
+    }
+
+    /**
+     * @param escapeString The string that escapes expressions in the values, so they aren't references; null for none
+     * @return this detector
+     */
+    public ExpressionCycleDetector withEscapeString(String escapeString) {
+        this.escapeString = escapeString;
+        return this;
+    }
+
+    /**
+     * @param valueSource The value source whose entries should be analyzed
+     * @return this detector
+     */
+    public ExpressionCycleDetector addValueSource(EnumerableValueSource valueSource) {
+        for (Map.Entry<String, Object> entry : valueSource.getEntries().entrySet()) {
+            if (!entries.containsKey(entry.getKey())) {
+                entries.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Build the reference graph of all expressions known so far and find every cycle in it.
+     *
+     * @return the result of the analysis.
+     */
+    public ExpressionCycles detect() {
+        String[] expressions = entries.keySet().toArray(new String[entries.size()]);
+        Map<String, Integer> ids = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < expressions.length; i++) {
+            ids.put(expressions[i], i);
+        }
+
+        ExpressionScanner scanner = new ExpressionScanner(startExpr, endExpr).withEscapeString(escapeString);
+        int[][] references = new int[expressions.length][];
+        for (int i = 0; i < expressions.length; i++) {
+            references[i] = findReferences(scanner, String.valueOf(entries.get(expressions[i])), ids);
+        }
+
+        return new ExpressionCycles(expressions, findCycles(expressions, references));
+    }
+
+    /**
+     * Scan a value for expressions the same way {@link StringSearchInterpolator} does, and return the ids of those
+     * that are known.
+     */
+    private static int[] findReferences(ExpressionScanner scanner, String value, Map<String, Integer> ids) {
+        List<ExpressionReference> found = scanner.scan(value);
+        int[] references = new int[found.size()];
+        int count = 0;
+        for (ExpressionReference reference : found) {
+            Integer id = ids.get(reference.getExpression());
+            if (id != null) {
+                references[count++] = id;
+            }
+        }
+        return Arrays.copyOf(references, count);
+    }
+
+    /**
+     * Iterative variant of Tarjan's strongly connected components algorithm, so deep reference chains can't overflow
+     * the call stack. Only components that actually form a cycle (more than one expression, or a self reference) are
+     * returned.
+     */
+    private static List<List<String>> findCycles(String[] expressions, int[][] references) {
+        int n = expressions.length;
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+
+        int[] componentStack = new int[n];
+        int componentSize = 0;
+
+        // call stack of the depth-first search: node, and position in its reference list
+        int[] callNodes = new int[n];
+        int[] callEdges = new int[n];
+
+        int nextIndex = 0;
+        List<List<String>> cycles = new ArrayList<List<String>>();
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+
+            int depth = 0;
+            callNodes[0] = root;
+            callEdges[0] = 0;
+            index[root] = lowLink[root] = nextIndex++;
+            componentStack[componentSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int node = callNodes[depth];
+                if (callEdges[depth] < references[node].length) {
+                    int target = references[node][callEdges[depth]++];
+                    if (index[target] < 0) {
+                        index[target] = lowLink[target] = nextIndex++;
+                        componentStack[componentSize++] = target;
+                        onStack[target] = true;
+                        depth++;
+                        callNodes[depth] = target;
+                        callEdges[depth] = 0;
+                    } else if (onStack[target]) {
+                        lowLink[node] = Math.min(lowLink[node], index[target]);
+                    }
+                    continue;
+                }
+
+                if (lowLink[node] == index[node]) {
+                    int member;
+                    int first = componentSize;
+                    do {
+                        member = componentStack[--first];
+                        onStack[member] = false;
+                    } while (member != node);
+
+                    if (componentSize - first > 1 || references(references[node], node)) {
+                        List<String> cycle = new ArrayList<String>(componentSize - first);
+                        for (int i = first; i < componentSize; i++) {
+                            cycle.add(expressions[componentStack[i]]);
+                        }
+                        cycles.add(cycle);
+                    }
+                    componentSize = first;
+                }
+
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNodes[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+
+        return cycles;
+    }
+
+    private static boolean references(int[] references, int node) {
+        for (int reference : references) {
+            if (reference == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
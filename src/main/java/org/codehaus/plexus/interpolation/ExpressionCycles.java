@@ -0,0 +1,138 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The result of an {@link ExpressionCycleDetector} analysis: every expression cycle found, and which of the analyzed
+ * expressions are proven not to take part in any cycle.
+ *
+ * @since 1.30
+ */
+public class ExpressionCycles {
+
+    private final List<List<String>> cycles;
+
+    private final Set<String> cyclic = new HashSet<String>();
+
+    private final Set<String> acyclic = new HashSet<String>();
+
+    ExpressionCycles(String[] expressions, List<List<String>> cycles) {
+        List<List<String>> unmodifiable = new ArrayList<List<String>>(cycles.size());
+        for (List<String> cycle : cycles) {
+            unmodifiable.add(Collections.unmodifiableList(cycle));
+            cyclic.addAll(cycle);
+        }
+        this.cycles = Collections.unmodifiableList(unmodifiable);
+
+        for (String expression : expressions) {
+            if (!cyclic.contains(expression)) {
+                acyclic.add(expression);
+            }
+        }
+    }
+
+    /**
+     * @return true if any of the analyzed expressions reference each other in a cycle.
+     */
+    public boolean hasCycles() {
+        return !cycles.isEmpty();
+    }
+
+    /**
+     * @return each group of expressions that reference each other, directly or indirectly.
+     */
+    public List<List<String>> getCycles() {
+        return cycles;
+    }
+
+    /**
+     * @param expression The expression to check
+     * @return true if the expression was analyzed and takes part in a cycle.
+     */
+    public boolean isCyclic(String expression) {
+        return cyclic.contains(expression);
+    }
+
+    /**
+     * @param expression The expression to check
+     * @return true if the expression was analyzed and proven not to take part in any cycle. Expressions that weren't
+     * part of the analysis are never considered acyclic.
+     */
+    public boolean isAcyclic(String expression) {
+        return acyclic.contains(expression);
+    }
+
+    /**
+     * Wrap a {@link RecursionInterceptor} so it only tracks expressions that weren't proven acyclic. Resolving an
+     * acyclic expression can never lead back to that same expression, so there is nothing to detect for it.
+     * <p>
+     * This only holds as long as the analyzed value sources are the ones answering those expressions during
+     * interpolation; when other value sources may answer them (first), use the delegate as-is.</p>
+     *
+     * @param delegate The interceptor that tracks all other expressions
+     * @return the wrapping interceptor.
+     */
+    public RecursionInterceptor skipAcyclic(final RecursionInterceptor delegate) {
+        return new RecursionInterceptor() {
+            // one bit per in-process expression, set when it was handed to the delegate
+            private long[] delegated = new long[1];
+
+            private int depth;
+
+            public void expressionResolutionStarted(String expression) {
+                if (depth == delegated.length * 64) {
+                    delegated = Arrays.copyOf(delegated, delegated.length * 2);
+                }
+
+                int slot = depth++;
+                if (acyclic.contains(expression)) {
+                    delegated[slot >> 6] &= ~(1L << slot);
+                } else {
+                    delegated[slot >> 6] |= 1L << slot;
+                    delegate.expressionResolutionStarted(expression);
+                }
+            }
+
+            public void expressionResolutionFinished(String expression) {
+                int slot = --depth;
+                if ((delegated[slot >> 6] & (1L << slot)) != 0) {
+                    delegate.expressionResolutionFinished(expression);
+                }
+            }
+
+            public boolean hasRecursiveExpression(String expression) {
+                return !acyclic.contains(expression) && delegate.hasRecursiveExpression(expression);
+            }
+
+            public List<?> getExpressionCycle(String expression) {
+                return delegate.getExpressionCycle(expression);
+            }
+
+            public void clear() {
+                depth = 0;
+                delegate.clear();
+            }
+        };
+    }
+}
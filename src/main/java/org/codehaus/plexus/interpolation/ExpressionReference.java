@@ -0,0 +1,83 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * An expression found by an {@link ExpressionScanner}, with the offsets of all the places it is referenced.
+ *
+ * @since 1.30
+ */
+public class ExpressionReference {
+
+    private final String expression;
+
+    private final String startExpr;
+
+    private final String endExpr;
+
+    private final int[] offsets;
+
+    public ExpressionReference(String expression, String startExpr, String endExpr, int[] offsets) {
+        this.expression = expression;
+        this.startExpr = startExpr;
+        this.endExpr = endExpr;
+        this.offsets = offsets.clone();
+    }
+
+    /**
+     * @return the expression as it is looked up in value sources: without delimiters, and without the leading dot the
+     *         interpolators ignore
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return the start delimiter of the first reference
+     */
+    public String getStartExpr() {
+        return startExpr;
+    }
+
+    /**
+     * @return the end delimiter of the first reference
+     */
+    public String getEndExpr() {
+        return endExpr;
+    }
+
+    /**
+     * @return the offset of the start delimiter of the first reference
+     */
+    public int getOffset() {
+        return offsets[0];
+    }
+
+    /**
+     * @return the offsets of the start delimiters of all references, in ascending order
+     */
+    public int[] getOffsets() {
+        return offsets.clone();
+    }
+
+    @Override
+    public String toString() {
+        return startExpr + expression + endExpr + " at " + Arrays.toString(offsets);
+    }
+}
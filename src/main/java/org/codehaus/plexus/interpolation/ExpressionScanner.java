@@ -0,0 +1,200 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.interpolation.multi.DelimiterSpecification;
+
+/**
+ * Lists the expressions a template references, without resolving any of them. Expressions are found exactly the way
+ * {@link StringSearchInterpolator} finds them, or <code>MultiDelimiterStringSearchInterpolator</code> when more
+ * delimiters are added: after the end of the previous expression, the first delimiter specification whose start
+ * occurs anywhere in the rest of the input is used, up to the next occurrence of its end; an expression directly
+ * preceded by the escape string is not a reference.
+ * <p>
+ * The scan takes time linear in the length of the input for each delimiter specification.</p>
+ *
+ * @since 1.30
+ */
+public class ExpressionScanner {
+
+    private final List<DelimiterSpecification> delimiters = new ArrayList<DelimiterSpecification>();
+
+    private String escapeString;
+
+    /**
+     * Use the default <code>${</code> and <code>}</code> expression delimiters.
+     */
+    public ExpressionScanner() {
+        this(StringSearchInterpolator.DEFAULT_START_EXPR, StringSearchInterpolator.DEFAULT_END_EXPR);
+    }
+
+    /**
+     * @param startExpr The start delimiter of expressions
+     * @param endExpr The end delimiter of expressions
+     */
+    public ExpressionScanner(String startExpr, String endExpr) {
+        delimiters.add(new DelimiterSpecification(startExpr, endExpr));
+    }
+
+    /**
+     * @param delimiterSpec a further delimiter specification, such as <code>@</code> or <code>${*}</code>, in the
+     *                      syntax of {@link DelimiterSpecification#parse(String)}
+     * @return this scanner
+     */
+    public ExpressionScanner addDelimiterSpec(String delimiterSpec) {
+        DelimiterSpecification spec = DelimiterSpecification.parse(delimiterSpec);
+        if (!delimiters.contains(spec)) {
+            delimiters.add(spec);
+        }
+        return this;
+    }
+
+    /**
+     * @param escapeString The string that escapes expressions, so they aren't references; null for none
+     * @return this scanner
+     */
+    public ExpressionScanner withEscapeString(String escapeString) {
+        this.escapeString = escapeString;
+        return this;
+    }
+
+    /**
+     * @param input the template to scan
+     * @return the referenced expressions in order of first reference, each listed once
+     */
+    public List<ExpressionReference> scan(String input) {
+        Map<String, Builder> found = new LinkedHashMap<String, Builder>();
+
+        int[] nextStart = new int[delimiters.size()];
+        Arrays.fill(nextStart, -2);
+
+        int endIdx = -1;
+        while (true) {
+            DelimiterSpecification spec = null;
+            int startIdx = -1;
+            for (int i = 0; i < nextStart.length; i++) {
+                if (nextStart[i] == -1) {
+                    // no more occurrences
+                    continue;
+                }
+                if (nextStart[i] < endIdx + 1) {
+                    nextStart[i] = input.indexOf(delimiters.get(i).getBegin(), endIdx + 1);
+                }
+                if (nextStart[i] > -1) {
+                    spec = delimiters.get(i);
+                    startIdx = nextStart[i];
+                    break;
+                }
+            }
+            if (spec == null) {
+                break;
+            }
+
+            endIdx = input.indexOf(spec.getEnd(), startIdx + 1);
+            if (endIdx < 0) {
+                break;
+            }
+
+            if (escapeString != null
+                    && escapeString.length() > 0
+                    && startIdx >= escapeString.length()
+                    && input.startsWith(escapeString, startIdx - escapeString.length())) {
+                continue;
+            }
+
+            String expression = input.substring(startIdx + spec.getBegin().length(), endIdx);
+            if (expression.startsWith(".")) {
+                expression = expression.substring(1);
+            }
+
+            Builder builder = found.get(expression);
+            if (builder == null) {
+                builder = new Builder(spec);
+                found.put(expression, builder);
+            }
+            builder.add(startIdx);
+
+            endIdx += spec.getEnd().length() - 1;
+        }
+
+        List<ExpressionReference> references = new ArrayList<ExpressionReference>(found.size());
+        for (Map.Entry<String, Builder> entry : found.entrySet()) {
+            references.add(entry.getValue().build(entry.getKey()));
+        }
+        return references;
+    }
+
+    /**
+     * @param reader the template to scan; it is read to the end but not closed
+     * @return the referenced expressions in order of first reference, with offsets in characters
+     * @throws IOException if the reader fails
+     */
+    public List<ExpressionReference> scan(Reader reader) throws IOException {
+        StringBuilder input = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            input.append(buffer, 0, read);
+        }
+        return scan(input.toString());
+    }
+
+    /**
+     * @param file the template to scan
+     * @param charset the encoding of the file
+     * @return the referenced expressions in order of first reference, with offsets in characters
+     * @throws IOException if the file cannot be read
+     */
+    public List<ExpressionReference> scan(Path file, Charset charset) throws IOException {
+        return scan(new String(Files.readAllBytes(file), charset));
+    }
+
+    private static final class Builder {
+
+        private final DelimiterSpecification spec;
+
+        private int[] offsets = new int[1];
+
+        private int count;
+
+        Builder(DelimiterSpecification spec) {
+            this.spec = spec;
+        }
+
+        void add(int offset) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+        }
+
+        ExpressionReference build(String expression) {
+            return new ExpressionReference(expression, spec.getBegin(), spec.getEnd(), Arrays.copyOf(offsets, count));
+        }
+    }
+}
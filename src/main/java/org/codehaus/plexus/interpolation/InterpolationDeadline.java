@@ -0,0 +1,219 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how long an interpolation may take: it expires at a point in time, when it is cancelled from another
+ * thread, or both. The engines that accept one check it before every expression they resolve and while they wait
+ * for an {@link AsyncValueSource}, and fail with an {@link InterpolationCancelledException} once it has expired. A
+ * value source that is stuck in a blocking call is not interrupted; the interpolation fails as soon as that call
+ * returns.
+ *
+ * @since 1.30
+ */
+public final class InterpolationDeadline {
+
+    private final boolean timed;
+
+    private final long deadlineNanos;
+
+    private final CompletableFuture<Void> expired = new CompletableFuture<Void>();
+
+    // handed out by whenExpired(), so that callers cannot complete the deadline itself
+    private final CompletableFuture<Void> expiredView = expired.thenApply(ignored -> null);
+
+    private volatile boolean cancelled;
+
+    // guarded by this
+    private final Set<Runnable> listeners = new LinkedHashSet<Runnable>();
+
+    // guarded by this: the task that expires a timed deadline, scheduled while anyone waits for it to expire
+    private ScheduledFuture<?> timer;
+
+    // guarded by this
+    private boolean viewHandedOut;
+
+    // guarded by this
+    private boolean fired;
+
+    private InterpolationDeadline(boolean timed, long deadlineNanos) {
+        this.timed = timed;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @param timeout how long from now the interpolation may take
+     * @param unit    the unit of timeout
+     * @return a deadline that expires after the timeout, or when cancelled earlier
+     */
+    public static InterpolationDeadline after(long timeout, TimeUnit unit) {
+        return new InterpolationDeadline(true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * @return a deadline without a time limit, which only expires when cancelled
+     */
+    public static InterpolationDeadline cancellable() {
+        return new InterpolationDeadline(false, 0);
+    }
+
+    /**
+     * Expire this deadline now. Interpolations using it fail before resolving their next expression.
+     */
+    public void cancel() {
+        cancelled = true;
+        expire();
+    }
+
+    /**
+     * @return true if {@link #cancel()} was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if this deadline was cancelled or has passed
+     */
+    public boolean isExpired() {
+        return cancelled || (timed && System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    /**
+     * @return why an interpolation using this deadline must stop: because it was cancelled, has passed, or the current
+     *         thread was interrupted; null if it may go on
+     */
+    public String getExpiredReason() {
+        if (cancelled) {
+            return "Interpolation cancelled";
+        }
+        if (timed && System.nanoTime() - deadlineNanos >= 0) {
+            return "Interpolation deadline exceeded";
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return "Interpolation interrupted";
+        }
+        return null;
+    }
+
+    /**
+     * @param unit the unit of the result
+     * @return the time left until this deadline passes, 0 if it has, or {@link Long#MAX_VALUE} if it has no time
+     *         limit
+     */
+    public long getRemaining(TimeUnit unit) {
+        if (!timed) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Allows asynchronous work to stop as soon as this deadline expires, without polling it. Every call returns the
+     * same future, and whatever is chained to it stays referenced until the deadline expires; work that may finish
+     * long before a deadline that is reused or never expires should use {@link #addExpiryListener(Runnable)} instead.
+     *
+     * @return a future that completes when this deadline is cancelled or passes
+     */
+    public CompletableFuture<Void> whenExpired() {
+        synchronized (this) {
+            viewHandedOut = true;
+            schedule();
+        }
+        return expiredView;
+    }
+
+    /**
+     * Run an action when this deadline is cancelled or passes, on the thread that expires it, or right away if it
+     * already has. Unlike {@link #whenExpired()}, the action is no longer referenced once it is removed again with
+     * {@link #removeExpiryListener(Runnable)}, and a timed deadline stops waiting for its time once nothing is
+     * listening anymore.
+     *
+     * @param listener The action to run
+     */
+    public void addExpiryListener(Runnable listener) {
+        synchronized (this) {
+            if (!fired) {
+                listeners.add(listener);
+                schedule();
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Stop listening for this deadline to expire.
+     *
+     * @param listener an action given to {@link #addExpiryListener(Runnable)}
+     */
+    public void removeExpiryListener(Runnable listener) {
+        synchronized (this) {
+            listeners.remove(listener);
+            if (listeners.isEmpty() && !viewHandedOut && timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+        }
+    }
+
+    // called while holding the lock
+    private void schedule() {
+        if (timed && timer == null && !fired) {
+            timer = Timer.SCHEDULER.schedule(
+                    this::expire, Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void expire() {
+        List<Runnable> pending;
+        synchronized (this) {
+            if (fired) {
+                return;
+            }
+            fired = true;
+            timer = null;
+            pending = new ArrayList<Runnable>(listeners);
+            listeners.clear();
+        }
+        expired.complete(null);
+        for (Runnable listener : pending) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Holds the thread that expires deadlines on time, created on first use.
+     */
+    private static final class Timer {
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "plexus-interpolation-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -88,6 +88,30 @@ public interface Interpolator extends BasicInterpolator {
     String interpolate(String input, String thisPrefixPattern, RecursionInterceptor recursionInterceptor)
             throws InterpolationException;
 
+    /**
+     * Resolve an input that is known to consist of a single, whole expression
+     * including its delimiters, such as <code>${project.version}</code>. This
+     * is the case for tokens extracted by the filter readers, and lets
+     * implementations skip searching the input for expressions.
+     * <p>
+     * Inputs that are not a single expression must still be interpolated as
+     * by {@link #interpolate(String, RecursionInterceptor)}, which is what the
+     * default implementation does.</p>
+     *
+     * @param expression The expression to resolve, including its delimiters
+     *
+     * @param recursionInterceptor Used to protect the interpolation process
+     *                             from expression cycles, and throw an
+     *                             exception if one is detected.
+     * @return the resolved value, or the expression itself if it cannot be resolved.
+     * @throws InterpolationException in case of an error.
+     * @since 1.30
+     */
+    default String resolveExpression(String expression, RecursionInterceptor recursionInterceptor)
+            throws InterpolationException {
+        return interpolate(expression, recursionInterceptor);
+    }
+
     /**
      * Return any feedback messages and errors that were generated - but
      * suppressed - during the interpolation process. Since unresolvable
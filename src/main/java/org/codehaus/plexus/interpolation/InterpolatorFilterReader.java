@@ -58,6 +58,8 @@ import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
 
+import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpolator;
+
 /**
  * A FilterReader implementation, that works with Interpolator interface instead of it's own interpolation
  * implementation. This implementation is heavily based on org.codehaus.plexus.util.InterpolationFilterReader.
@@ -105,6 +107,18 @@ public class InterpolatorFilterReader extends FilterReader {
     /** if true escapeString will be preserved \{foo} -> \{foo} */
     private boolean preserveEscapeString = false;
 
+    /** maximum number of characters buffered while looking for an end token, -1 for no limit */
+    private int maxExpressionLength = -1;
+
+    /** Characters read ahead from the underlying reader */
+    private final char[] buffer = new char[8192];
+
+    /** Index of the next unconsumed character in the buffer */
+    private int bufferPos;
+
+    /** Number of valid characters in the buffer */
+    private int bufferLimit;
+
     /**
      * this constructor use default begin token ${ and default end token }
      * @param in reader to use
@@ -172,12 +186,16 @@ public class InterpolatorFilterReader extends FilterReader {
             throw new IllegalArgumentException("skip value is negative");
         }
 
-        for (long i = 0; i < n; i++) {
-            if (read() == -1) {
-                return i;
+        char[] skipped = new char[(int) Math.min(n, buffer.length)];
+        long remaining = n;
+        while (remaining > 0) {
+            int count = read(skipped, 0, (int) Math.min(remaining, skipped.length));
+            if (count == -1) {
+                break;
             }
+            remaining -= count;
         }
-        return n;
+        return n - remaining;
     }
 
     /**
@@ -191,18 +209,55 @@ public class InterpolatorFilterReader extends FilterReader {
      * @exception IOException If an I/O error occurs
      */
     public int read(char cbuf[], int off, int len) throws IOException {
-        for (int i = 0; i < len; i++) {
+        if (len == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        while (count < len) {
+            // pending replacement text is copied as a whole
+            if (replaceIndex != -1 && replaceIndex < replaceData.length()) {
+                int n = Math.min(len - count, replaceData.length() - replaceIndex);
+                replaceData.getChars(replaceIndex, replaceIndex + n, cbuf, off + count);
+                replaceIndex += n;
+                if (replaceIndex >= replaceData.length()) {
+                    replaceIndex = -1;
+                }
+                count += n;
+                continue;
+            }
+
+            // as are literal runs up to the next character that may start a token
+            if (!(previousIndex != -1 && previousIndex < this.endToken.length())) {
+                if (bufferPos == bufferLimit && !fillBuffer()) {
+                    break;
+                }
+
+                char begin = this.beginToken.charAt(0);
+                char originalBegin = useEscape ? this.orginalBeginToken.charAt(0) : begin;
+                int end = Math.min(bufferLimit, bufferPos + len - count);
+                int pos = bufferPos;
+                while (pos < end && buffer[pos] != begin && buffer[pos] != originalBegin) {
+                    pos++;
+                }
+
+                if (pos > bufferPos) {
+                    System.arraycopy(buffer, bufferPos, cbuf, off + count, pos - bufferPos);
+                    count += pos - bufferPos;
+                    bufferPos = pos;
+                    continue;
+                }
+            }
+
+            // everything else goes through the token state machine
             int ch = read();
             if (ch == -1) {
-                if (i == 0) {
-                    return -1;
-                } else {
-                    return i;
-                }
+                break;
             }
-            cbuf[off + i] = (char) ch;
+            cbuf[off + count++] = (char) ch;
         }
-        return len;
+
+        return count == 0 ? -1 : count;
     }
 
     /**
@@ -224,7 +279,7 @@ public class InterpolatorFilterReader extends FilterReader {
         if (previousIndex != -1 && previousIndex < this.endToken.length()) {
             ch = this.endToken.charAt(previousIndex++);
         } else {
-            ch = in.read();
+            ch = nextChar();
         }
 
         if (ch == this.beginToken.charAt(0) || (useEscape && ch == this.orginalBeginToken.charAt(0))) {
@@ -238,7 +293,7 @@ public class InterpolatorFilterReader extends FilterReader {
                 if (previousIndex != -1 && previousIndex < this.endToken.length()) {
                     ch = this.endToken.charAt(previousIndex++);
                 } else {
-                    ch = in.read();
+                    ch = nextChar();
                 }
                 if (ch != -1) {
                     key.append((char) ch);
@@ -258,9 +313,13 @@ public class InterpolatorFilterReader extends FilterReader {
                 if (useEscape
                         && this.orginalBeginToken == this.endToken
                         && key.toString().startsWith(this.beginToken)) {
-                    ch = in.read();
+                    ch = nextChar();
                     key.append((char) ch);
                 }
+                if (maxExpressionLength >= 0 && key.length() > maxExpressionLength) {
+                    ch = -1; // give up on this candidate and let the buffered text pass through
+                    break;
+                }
             } while (ch != this.endToken.charAt(0));
 
             // now test endToken
@@ -271,7 +330,7 @@ public class InterpolatorFilterReader extends FilterReader {
                     if (previousIndex != -1 && previousIndex < this.endToken.length()) {
                         ch = this.endToken.charAt(previousIndex++);
                     } else {
-                        ch = in.read();
+                        ch = nextChar();
                     }
 
                     if (ch != -1) {
@@ -312,10 +371,12 @@ public class InterpolatorFilterReader extends FilterReader {
                     }
                 }
                 if (!escapeFound) {
-                    if (interpolateWithPrefixPattern) {
+                    if (interpolateWithPrefixPattern && !ignoresPrefixPattern(interpolator)) {
                         value = interpolator.interpolate(key.toString(), "", recursionInterceptor);
                     } else {
-                        value = interpolator.interpolate(key.toString(), recursionInterceptor);
+                        // the key is a single whole token, so let the interpolator resolve it directly instead of
+                        // searching it for expressions again
+                        value = interpolator.resolveExpression(key.toString(), recursionInterceptor);
                     }
                 }
             } catch (InterpolationException e) {
@@ -342,6 +403,70 @@ public class InterpolatorFilterReader extends FilterReader {
         return ch;
     }
 
+    /**
+     * @return the next character from the underlying reader, or -1 at its end
+     */
+    private int nextChar() throws IOException {
+        if (bufferPos == bufferLimit && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPos++];
+    }
+
+    private boolean fillBuffer() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+
+        if (n < 0) {
+            return false;
+        }
+
+        bufferPos = 0;
+        bufferLimit = n;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean ready() throws IOException {
+        return (replaceIndex != -1 && replaceIndex < replaceData.length()) || bufferPos < bufferLimit || in.ready();
+    }
+
+    /**
+     * Mark is not supported, since characters are read ahead from the underlying reader.
+     *
+     * @return false
+     */
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
+    /**
+     * The built-in string search engines ignore the prefix pattern, so for them interpolating with an empty one is
+     * the same as interpolating without one. Subclasses may not, and are left alone.
+     */
+    private static boolean ignoresPrefixPattern(Interpolator interpolator) {
+        return interpolator.getClass() == StringSearchInterpolator.class
+                || interpolator.getClass() == MultiDelimiterStringSearchInterpolator.class;
+    }
+
     public boolean isInterpolateWithPrefixPattern() {
         return interpolateWithPrefixPattern;
     }
@@ -372,6 +497,26 @@ public class InterpolatorFilterReader extends FilterReader {
         this.preserveEscapeString = preserveEscapeString;
     }
 
+    /**
+     * @return the maximum number of characters buffered for a single expression, or -1 if unlimited
+     * @since 1.30
+     */
+    public int getMaxExpressionLength() {
+        return maxExpressionLength;
+    }
+
+    /**
+     * Limits how many characters are buffered while looking for the end token of an expression. Once a candidate
+     * grows beyond this length (begin token included) it is abandoned and its text is passed through unchanged, which
+     * keeps memory bounded for unterminated begin tokens in large files.
+     *
+     * @param maxExpressionLength the maximum expression length, or -1 (the default) for no limit
+     * @since 1.30
+     */
+    public void setMaxExpressionLength(int maxExpressionLength) {
+        this.maxExpressionLength = maxExpressionLength;
+    }
+
     public RecursionInterceptor getRecursionInterceptor() {
         return recursionInterceptor;
     }
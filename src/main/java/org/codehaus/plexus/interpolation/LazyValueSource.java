@@ -0,0 +1,78 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.codehaus.plexus.interpolation.util.SingleFlight;
+
+/**
+ * Wraps a Map of expressions to Suppliers of their values, for values that are expensive to compute and only
+ * referenced by some inputs. Each supplier is called when its expression is first looked up, and at most once, even
+ * when several threads look it up at the same time; its value is then kept. A supplier that fails is called again by
+ * the next lookup.
+ *
+ * @since 1.30
+ */
+public class LazyValueSource extends AbstractValueSource {
+
+    private final Map<String, Supplier<?>> suppliers;
+
+    private final SingleFlight<String, Object> values =
+            new SingleFlight<String, Object>(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+    private final Set<String> computed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param suppliers the expressions this value source resolves, mapped to the suppliers of their values. The map
+     *                  is copied.
+     */
+    public LazyValueSource(Map<String, ? extends Supplier<?>> suppliers) {
+        super(false);
+        this.suppliers = new LinkedHashMap<String, Supplier<?>>(suppliers);
+    }
+
+    /**
+     * Return the value of the supplier mapped to the expression, calling it if this is the first lookup.
+     */
+    public Object getValue(String expression) {
+        final Supplier<?> supplier = suppliers.get(expression);
+        if (supplier == null) {
+            return null;
+        }
+        return values.get(expression, key -> {
+            Object value = supplier.get();
+            computed.add(key);
+            return value;
+        });
+    }
+
+    /**
+     * @return the expressions whose suppliers were never called successfully so far, in the order they were given
+     */
+    public Set<String> getUnusedExpressions() {
+        Set<String> unused = new LinkedHashSet<String>(suppliers.keySet());
+        unused.removeAll(computed);
+        return unused;
+    }
+}
@@ -16,13 +16,14 @@ package org.codehaus.plexus.interpolation;
  * limitations under the License.
  */
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Wraps a Map, and looks up the whole expression as a single key, returning the
  * value mapped to it.
  */
-public class MapBasedValueSource extends AbstractValueSource {
+public class MapBasedValueSource extends AbstractValueSource implements EnumerableValueSource {
 
     private final Map values;
 
@@ -42,4 +43,21 @@ public class MapBasedValueSource extends AbstractValueSource {
     public Object getValue(String expression) {
         return values == null ? null : values.get(expression);
     }
+
+    /**
+     * {@inheritDoc}
+     * @since 1.30
+     */
+    public Map<String, Object> getEntries() {
+        Map<String, Object> entries = new LinkedHashMap<String, Object>();
+        if (values != null) {
+            for (Object o : values.entrySet()) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                if (entry.getKey() instanceof String && entry.getValue() != null) {
+                    entries.put((String) entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return entries;
+    }
 }
@@ -0,0 +1,431 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Looks up expressions as keys of a {@code .properties} file without loading it into {@link java.util.Properties}.
+ * The file is memory-mapped, and the first lookup indexes where each key is defined, in two int arrays. Only the
+ * values actually looked up are decoded, following the escaping and line continuation rules of
+ * {@link java.util.Properties#load(java.io.Reader)}; when a key is defined more than once, the last definition wins.
+ * <p>
+ * The file is read as ISO-8859-1, like {@link java.util.Properties#load(java.io.InputStream)} does, unless UTF-8 is
+ * given. It must not be modified while this value source is in use, and must not exceed 2 GB.</p>
+ *
+ * @since 1.30
+ */
+public class MappedPropertiesValueSource extends AbstractValueSource {
+
+    private final ByteBuffer buffer;
+
+    private final boolean utf8;
+
+    private volatile Index index;
+
+    /**
+     * @param file The properties file, read as ISO-8859-1.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public MappedPropertiesValueSource(Path file) throws IOException {
+        this(file, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @param file The properties file.
+     * @param charset The encoding of the file: ISO-8859-1, US-ASCII or UTF-8.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public MappedPropertiesValueSource(Path file, Charset charset) throws IOException {
+        super(false);
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            utf8 = true;
+        } else if (StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+            utf8 = false;
+        } else {
+            throw new IllegalArgumentException("Unsupported properties file encoding: " + charset);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Properties file too large to map: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Look up the expression as a key of the properties file, and decode its value.
+     */
+    public Object getValue(String expression) {
+        if (expression == null) {
+            return null;
+        }
+
+        Cursor cursor = new Cursor();
+        int offset = getIndex().find(expression, cursor);
+        if (offset < 0) {
+            return null;
+        }
+
+        cursor.pos = offset;
+        StringBuilder key = new StringBuilder(expression.length());
+        boolean separator = cursor.readKey(key);
+
+        int ch = cursor.read();
+        while (ch >= 0 && !cursor.escaped && isWhitespace(ch)) {
+            ch = cursor.read();
+        }
+        if (ch >= 0 && !separator && !cursor.escaped && (ch == '=' || ch == ':')) {
+            ch = cursor.read();
+            while (ch >= 0 && !cursor.escaped && isWhitespace(ch)) {
+                ch = cursor.read();
+            }
+        }
+
+        StringBuilder value = new StringBuilder();
+        while (ch >= 0) {
+            value.append((char) ch);
+            ch = cursor.read();
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return the number of distinct keys in the properties file
+     */
+    public int size() {
+        return getIndex().size;
+    }
+
+    private Index getIndex() {
+        Index result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = buildIndex();
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Index buildIndex() {
+        Index result = new Index();
+        Cursor cursor = new Cursor();
+        StringBuilder key = new StringBuilder();
+        int limit = buffer.limit();
+        int pos = 0;
+        while (pos < limit) {
+            pos = skipWhitespace(pos);
+            if (pos >= limit) {
+                break;
+            }
+
+            byte b = buffer.get(pos);
+            byte next = pos + 1 < limit ? buffer.get(pos + 1) : 0;
+            if (b == '\r' || b == '\n') {
+                pos++;
+            } else if (b == '\\' && (next == '\r' || next == '\n') && pos + 2 < limit) {
+                // a line continued before its first character starts on the next line, even as a comment; like
+                // Properties, a continuation right at the end of the file still defines an empty key
+                pos += next == '\r' && pos + 2 < limit && buffer.get(pos + 2) == '\n' ? 3 : 2;
+            } else if (b == '#' || b == '!') {
+                // comments end with their natural line, backslash or not
+                while (pos < limit && buffer.get(pos) != '\r' && buffer.get(pos) != '\n') {
+                    pos++;
+                }
+            } else {
+                cursor.pos = pos;
+                key.setLength(0);
+                cursor.readKey(key);
+                result.put(pos, hash(key), key, cursor);
+                pos = skipLine(cursor.pos);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the position after the line terminator that ends the logical line containing pos
+     */
+    private int skipLine(int pos) {
+        int limit = buffer.limit();
+        while (pos < limit) {
+            byte b = buffer.get(pos++);
+            if (b == '\\') {
+                if (pos < limit && buffer.get(pos) == '\r' && pos + 1 < limit && buffer.get(pos + 1) == '\n') {
+                    pos++;
+                }
+                pos++;
+            } else if (b == '\r' || b == '\n') {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    private int skipWhitespace(int pos) {
+        while (pos < buffer.limit() && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isWhitespace(int ch) {
+        return ch == ' ' || ch == '\t' || ch == '\f';
+    }
+
+    private static int hash(CharSequence chars) {
+        int h = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            h = 31 * h + chars.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Reads the characters of a logical line, resolving escapes and line continuations.
+     */
+    private final class Cursor {
+        private int pos;
+
+        // whether the last character read was escaped
+        private boolean escaped;
+
+        // the second half of a surrogate pair that was decoded but not read yet
+        private int pendingLow = -1;
+
+        /**
+         * @return the next character, or -1 at the end of the logical line, which is left unread
+         */
+        int read() {
+            if (pendingLow >= 0) {
+                int low = pendingLow;
+                pendingLow = -1;
+                return low;
+            }
+
+            int limit = buffer.limit();
+            while (pos < limit) {
+                int ch = buffer.get(pos) & 0xFF;
+                if (ch == '\r' || ch == '\n') {
+                    return -1;
+                }
+                if (ch != '\\') {
+                    escaped = false;
+                    return decode();
+                }
+
+                pos++;
+                if (pos >= limit) {
+                    return -1;
+                }
+                ch = buffer.get(pos) & 0xFF;
+                if (ch == '\r' || ch == '\n') {
+                    // line continuation: leading whitespace of the next line is dropped
+                    pos++;
+                    if (ch == '\r' && pos < limit && buffer.get(pos) == '\n') {
+                        pos++;
+                    }
+                    pos = skipWhitespace(pos);
+                    continue;
+                }
+
+                escaped = true;
+                switch (ch) {
+                    case 't':
+                        pos++;
+                        return '\t';
+                    case 'n':
+                        pos++;
+                        return '\n';
+                    case 'r':
+                        pos++;
+                        return '\r';
+                    case 'f':
+                        pos++;
+                        return '\f';
+                    case 'u':
+                        pos++;
+                        return readUnicode();
+                    default:
+                        return decode();
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Reads a key, up to the first unescaped separator or whitespace.
+         *
+         * @return true if the key ended with an <code>=</code> or <code>:</code> separator
+         */
+        boolean readKey(StringBuilder key) {
+            int ch;
+            while ((ch = read()) >= 0) {
+                if (!escaped && (ch == '=' || ch == ':')) {
+                    return true;
+                }
+                if (!escaped && isWhitespace(ch)) {
+                    return false;
+                }
+                key.append((char) ch);
+            }
+            return false;
+        }
+
+        private int readUnicode() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = pos < buffer.limit() ? Character.digit((char) (buffer.get(pos++) & 0xFF), 16) : -1;
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                }
+                value = (value << 4) | digit;
+            }
+            return value;
+        }
+
+        /**
+         * Decodes the character at pos, which is not a line terminator or backslash.
+         */
+        private int decode() {
+            int b = buffer.get(pos++) & 0xFF;
+            if (!utf8 || b < 0x80) {
+                return b;
+            }
+
+            int extra;
+            int codePoint;
+            if (b >= 0xF0 && b < 0xF5) {
+                extra = 3;
+                codePoint = b & 0x07;
+            } else if (b >= 0xE0) {
+                extra = b < 0xF0 ? 2 : -1;
+                codePoint = b & 0x0F;
+            } else if (b >= 0xC2) {
+                extra = 1;
+                codePoint = b & 0x1F;
+            } else {
+                extra = -1;
+                codePoint = 0;
+            }
+            if (extra < 0) {
+                return 0xFFFD;
+            }
+            for (int i = 0; i < extra; i++) {
+                int next = pos < buffer.limit() ? buffer.get(pos) & 0xFF : 0;
+                if ((next & 0xC0) != 0x80) {
+                    return 0xFFFD;
+                }
+                pos++;
+                codePoint = (codePoint << 6) | (next & 0x3F);
+            }
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                pendingLow = Character.lowSurrogate(codePoint);
+                return Character.highSurrogate(codePoint);
+            }
+            return codePoint;
+        }
+    }
+
+    /**
+     * Open addressing table from key hashes to the offsets of the lines defining them.
+     */
+    private final class Index {
+        private int[] hashes = new int[16];
+
+        // line offset + 1, 0 for an empty slot
+        private int[] offsets = new int[16];
+
+        private int size;
+
+        int find(String key, Cursor cursor) {
+            int hash = key.hashCode();
+            StringBuilder candidate = new StringBuilder(key.length());
+            int mask = offsets.length - 1;
+            for (int slot = mix(hash) & mask; offsets[slot] != 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash) {
+                    candidate.setLength(0);
+                    cursor.pos = offsets[slot] - 1;
+                    cursor.readKey(candidate);
+                    if (key.contentEquals(candidate)) {
+                        return offsets[slot] - 1;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        void put(int offset, int hash, StringBuilder key, Cursor cursor) {
+            int mask = offsets.length - 1;
+            int slot = mix(hash) & mask;
+            for (; offsets[slot] != 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash) {
+                    int pos = cursor.pos;
+                    StringBuilder existing = new StringBuilder(key.length());
+                    cursor.pos = offsets[slot] - 1;
+                    cursor.readKey(existing);
+                    cursor.pos = pos;
+                    if (existing.toString().contentEquals(key)) {
+                        // a later definition replaces an earlier one
+                        offsets[slot] = offset + 1;
+                        return;
+                    }
+                }
+            }
+
+            hashes[slot] = hash;
+            offsets[slot] = offset + 1;
+            if (++size * 2 > offsets.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            int[] oldHashes = hashes;
+            int[] oldOffsets = offsets;
+            hashes = new int[oldOffsets.length * 2];
+            offsets = new int[oldOffsets.length * 2];
+            int mask = offsets.length - 1;
+            for (int i = 0; i < oldOffsets.length; i++) {
+                if (oldOffsets[i] != 0) {
+                    int slot = mix(oldHashes[i]) & mask;
+                    while (offsets[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    hashes[slot] = oldHashes[i];
+                    offsets[slot] = oldOffsets[i];
+                }
+            }
+        }
+
+        private int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
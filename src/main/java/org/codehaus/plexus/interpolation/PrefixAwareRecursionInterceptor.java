@@ -16,10 +16,12 @@ package org.codehaus.plexus.interpolation;
  * limitations under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EmptyStackException;
 import java.util.List;
-import java.util.Stack;
 
 import org.codehaus.plexus.interpolation.util.ValueSourceUtils;
 
@@ -27,6 +29,12 @@ import org.codehaus.plexus.interpolation.util.ValueSourceUtils;
  * {@link RecursionInterceptor} implementation that provides support for expressions
  * with multiple synonyms, such as project.build.directory == pom.build.directory ==
  * build.directory in Maven's POM.
+ * <p>
+ * Expressions are tracked as slices of the original expression strings, starting
+ * after any matched prefix, so no trimmed copies are created. The slices are chained
+ * into a small hash table keyed by their hash code, which keeps recursion checks
+ * independent of the nesting depth. Instances are not thread-safe; use one per
+ * interpolation effort.</p>
  *
  * @author jdcasey
  */
@@ -36,12 +44,31 @@ public class PrefixAwareRecursionInterceptor implements RecursionInterceptor {
 
     public static final String DEFAULT_END_TOKEN = "\\}";
 
-    private Stack<String> nakedExpressions = new Stack<String>();
+    private static final int INITIAL_CAPACITY = 16;
 
     private final String[] possiblePrefixes;
 
     private boolean watchUnprefixedExpressions = true;
 
+    // in-process stack: expression, start of its naked part (-1 if untracked), and hash of the naked part
+    private String[] expressions = new String[INITIAL_CAPACITY];
+
+    private int[] starts = new int[INITIAL_CAPACITY];
+
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    // hash chains over the stack: bucket heads, and the next-older stack entry in the same bucket
+    private int[] buckets = newBuckets(INITIAL_CAPACITY * 2);
+
+    private int[] next = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    // the interpolator checks, then starts resolving, the same expression instance; only trim it once
+    private String lastExpression;
+
+    private int lastStart;
+
     /**
      * Use the specified expression prefixes to detect synonyms, and specify whether
      * unprefixed expressions can be considered synonyms.
@@ -65,17 +92,39 @@ public class PrefixAwareRecursionInterceptor implements RecursionInterceptor {
     }
 
     public boolean hasRecursiveExpression(String expression) {
-        String realExpr = ValueSourceUtils.trimPrefix(expression, possiblePrefixes, watchUnprefixedExpressions);
-        return realExpr != null && nakedExpressions.contains(realExpr);
+        int start = nakedStart(expression);
+        return start >= 0 && find(expression, start, hash(expression, start)) >= 0;
     }
 
     public void expressionResolutionFinished(String expression) {
-        nakedExpressions.pop();
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+
+        int idx = --size;
+        if (starts[idx] >= 0) {
+            buckets[hashes[idx] & (buckets.length - 1)] = next[idx];
+        }
+        expressions[idx] = null;
     }
 
     public void expressionResolutionStarted(String expression) {
-        String realExpr = ValueSourceUtils.trimPrefix(expression, possiblePrefixes, watchUnprefixedExpressions);
-        nakedExpressions.push(realExpr);
+        int start = nakedStart(expression);
+
+        if (size == expressions.length) {
+            grow();
+        }
+
+        int idx = size++;
+        expressions[idx] = expression;
+        starts[idx] = start;
+        if (start >= 0) {
+            int hash = hash(expression, start);
+            int bucket = hash & (buckets.length - 1);
+            hashes[idx] = hash;
+            next[idx] = buckets[bucket];
+            buckets[bucket] = idx;
+        }
     }
 
     /**
@@ -87,21 +136,101 @@ public class PrefixAwareRecursionInterceptor implements RecursionInterceptor {
      * then return {@link Collections#EMPTY_LIST}.
      */
     public List getExpressionCycle(String expression) {
-        String expr = ValueSourceUtils.trimPrefix(expression, possiblePrefixes, watchUnprefixedExpressions);
-
-        if (expr == null) {
+        int start = nakedStart(expression);
+        if (start < 0) {
             return Collections.EMPTY_LIST;
         }
 
-        int idx = nakedExpressions.indexOf(expr);
-        if (idx < 0) {
+        int hash = hash(expression, start);
+        int first = -1;
+        for (int idx = find(expression, start, hash); idx >= 0; idx = findNext(idx, expression, start, hash)) {
+            first = idx;
+        }
+
+        if (first < 0) {
             return Collections.EMPTY_LIST;
-        } else {
-            return nakedExpressions.subList(idx, nakedExpressions.size());
         }
+
+        List<String> cycle = new ArrayList<String>(size - first);
+        for (int idx = first; idx < size; idx++) {
+            cycle.add(starts[idx] < 0 ? null : expressions[idx].substring(starts[idx]));
+        }
+        return cycle;
     }
 
     public void clear() {
-        nakedExpressions.clear();
+        Arrays.fill(expressions, 0, size, null);
+        Arrays.fill(buckets, -1);
+        size = 0;
+        lastExpression = null;
+    }
+
+    private int nakedStart(String expression) {
+        if (expression == null || expression != lastExpression) {
+            lastStart = ValueSourceUtils.trimPrefixIndex(expression, possiblePrefixes, watchUnprefixedExpressions);
+            lastExpression = expression;
+        }
+        return lastStart;
+    }
+
+    /**
+     * Return the most recently started entry matching the naked expression, or -1.
+     */
+    private int find(String expression, int start, int hash) {
+        return match(buckets[hash & (buckets.length - 1)], expression, start, hash);
+    }
+
+    private int findNext(int idx, String expression, int start, int hash) {
+        return match(next[idx], expression, start, hash);
+    }
+
+    private int match(int idx, String expression, int start, int hash) {
+        int length = expression.length() - start;
+        for (; idx >= 0; idx = next[idx]) {
+            if (hashes[idx] == hash
+                    && expressions[idx].length() - starts[idx] == length
+                    && expression.regionMatches(start, expressions[idx], starts[idx], length)) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private void grow() {
+        int capacity = expressions.length * 2;
+        expressions = Arrays.copyOf(expressions, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        next = Arrays.copyOf(next, capacity);
+
+        buckets = newBuckets(capacity * 2);
+        for (int idx = 0; idx < size; idx++) {
+            if (starts[idx] >= 0) {
+                int bucket = hashes[idx] & (buckets.length - 1);
+                next[idx] = buckets[bucket];
+                buckets[bucket] = idx;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link String#hashCode()} of the naked expression, without creating it.
+     */
+    private static int hash(String expression, int start) {
+        if (start == 0) {
+            return expression.hashCode();
+        }
+
+        int hash = 0;
+        for (int i = start; i < expression.length(); i++) {
+            hash = 31 * hash + expression.charAt(i);
+        }
+        return hash;
+    }
+
+    private static int[] newBuckets(int count) {
+        int[] buckets = new int[count];
+        Arrays.fill(buckets, -1);
+        return buckets;
     }
 }
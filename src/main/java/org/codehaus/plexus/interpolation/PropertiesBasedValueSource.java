@@ -16,6 +16,8 @@ package org.codehaus.plexus.interpolation;
  * limitations under the License.
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -26,7 +28,7 @@ import java.util.Properties;
  *
  * @author jdcasey
  */
-public class PropertiesBasedValueSource extends AbstractValueSource {
+public class PropertiesBasedValueSource extends AbstractValueSource implements EnumerableValueSource {
 
     private final Properties properties;
 
@@ -49,4 +51,18 @@ public class PropertiesBasedValueSource extends AbstractValueSource {
     public Object getValue(String expression) {
         return properties == null ? null : properties.getProperty(expression);
     }
+
+    /**
+     * {@inheritDoc}
+     * @since 1.30
+     */
+    public Map<String, Object> getEntries() {
+        Map<String, Object> entries = new LinkedHashMap<String, Object>();
+        if (properties != null) {
+            for (String name : properties.stringPropertyNames()) {
+                entries.put(name, properties.getProperty(name));
+            }
+        }
+        return entries;
+    }
 }
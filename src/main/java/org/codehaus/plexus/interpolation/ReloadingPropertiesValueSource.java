@@ -0,0 +1,260 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up expressions as keys of a {@code .properties} file that may change while the value source is in use. The
+ * values are held in an immutable snapshot, which {@link #reload()} - or, after {@link #watch(long, TimeUnit)}, a
+ * background thread - replaces atomically when the file changed, increasing the {@link #getVersion() version}. A
+ * missing file has no values; a file that cannot be read leaves the previous snapshot in place.
+ *
+ * @since 1.30
+ */
+public class ReloadingPropertiesValueSource extends AbstractValueSource
+        implements VersionedValueSource, EnumerableValueSource, Closeable {
+
+    private final Path file;
+
+    private volatile Snapshot snapshot;
+
+    private Thread watcher;
+
+    private volatile boolean closed;
+
+    /**
+     * @param file The properties file, read as ISO-8859-1.
+     * @throws IOException if the file exists but cannot be read.
+     */
+    public ReloadingPropertiesValueSource(Path file) throws IOException {
+        super(false);
+        this.file = file.toAbsolutePath();
+        this.snapshot = read(1);
+    }
+
+    /**
+     * Lookup the supplied expression as a key in the current snapshot of the properties file.
+     */
+    public Object getValue(String expression) {
+        return snapshot.values.get(expression);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Object> getEntries() {
+        return new LinkedHashMap<String, Object>(snapshot.values);
+    }
+
+    /**
+     * Read the properties file again.
+     *
+     * @return true if its values changed, and so did the version
+     * @throws IOException if the file exists but cannot be read; the previous values are kept.
+     */
+    public boolean reload() throws IOException {
+        return reload(true);
+    }
+
+    /**
+     * Watch the properties file for changes and reload it in a background daemon thread, until {@link #close()}.
+     * Changes are noticed through a {@link WatchService} on the directory of the file, and by checking the size and
+     * modification time of the file at the given interval, which also covers file systems a WatchService does not
+     * support.
+     *
+     * @param pollInterval how often to check the file in any case
+     * @param unit the unit of pollInterval
+     */
+    public synchronized void watch(long pollInterval, TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException("Closed");
+        }
+        if (watcher != null) {
+            return;
+        }
+
+        WatchService watchService = null;
+        try {
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent()
+                    .register(
+                            watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            closeQuietly(watchService);
+            watchService = null;
+        }
+
+        final WatchService events = watchService;
+        final long pollMillis = Math.max(1, unit.toMillis(pollInterval));
+        watcher = new Thread(() -> run(events, pollMillis), "plexus-interpolation-reload-" + file.getFileName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stop watching the properties file. The current values remain available.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = watcher;
+            watcher = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run(WatchService events, long pollMillis) {
+        try {
+            while (!closed) {
+                boolean changed = false;
+                if (events != null) {
+                    WatchKey key = events.poll(pollMillis, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        for (WatchEvent<?> event : key.pollEvents()) {
+                            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                                    || file.getFileName().equals(event.context());
+                        }
+                        if (!key.reset()) {
+                            // the directory is gone; keep polling in case it comes back
+                            closeQuietly(events);
+                            events = null;
+                        }
+                    }
+                } else {
+                    Thread.sleep(pollMillis);
+                }
+
+                try {
+                    reload(changed);
+                } catch (IOException e) {
+                    // keep the previous values, and try again on the next change
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        } finally {
+            closeQuietly(events);
+        }
+    }
+
+    private synchronized boolean reload(boolean force) throws IOException {
+        Snapshot current = snapshot;
+        if (!force && current.isUpToDate(file)) {
+            return false;
+        }
+
+        Snapshot next = read(current.version + 1);
+        if (next.values.equals(current.values)) {
+            // remember the new size and modification time, but keep the version
+            snapshot = new Snapshot(current.version, current.values, next.size, next.modified);
+            return false;
+        }
+        snapshot = next;
+        return true;
+    }
+
+    private Snapshot read(long version) throws IOException {
+        BasicFileAttributes attributes;
+        Properties properties = new Properties();
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+        } catch (NoSuchFileException e) {
+            return new Snapshot(version, Collections.<String, String>emptyMap(), -1, -1);
+        }
+
+        Map<String, String> values = new HashMap<String, String>();
+        for (String name : properties.stringPropertyNames()) {
+            values.put(name, properties.getProperty(name));
+        }
+        return new Snapshot(
+                version,
+                Collections.unmodifiableMap(values),
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis());
+    }
+
+    private static void closeQuietly(WatchService watchService) {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final long version;
+
+        private final Map<String, String> values;
+
+        private final long size;
+
+        private final long modified;
+
+        Snapshot(long version, Map<String, String> values, long size, long modified) {
+            this.version = version;
+            this.values = values;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        boolean isUpToDate(Path file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return attributes.size() == size && attributes.lastModifiedTime().toMillis() == modified;
+            } catch (IOException e) {
+                // missing, or unreadable for now
+                return size < 0;
+            }
+        }
+    }
+}
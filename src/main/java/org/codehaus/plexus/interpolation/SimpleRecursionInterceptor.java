@@ -16,9 +16,13 @@ package org.codehaus.plexus.interpolation;
  * limitations under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EmptyStackException;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
 
 /**
  * Simplest implementation of a {@link RecursionInterceptor}, which checks whether
@@ -26,25 +30,54 @@ import java.util.Stack;
  * expression, but has not finished. This will not catch synonym expressions, as
  * are found in Maven (${project.build.directory}, ${pom.build.directory}, and
  * ${build.directory} are synonyms).
+ * <p>
+ * In-process expressions are kept on an array-backed stack, along with a count
+ * of each expression on that stack, so checking for a recursive expression
+ * doesn't depend on how deeply the expressions are nested. Instances are not
+ * thread-safe; use one per interpolation effort.</p>
  *
  * @author jdcasey
  */
 public class SimpleRecursionInterceptor implements RecursionInterceptor {
 
-    private Stack expressions = new Stack();
+    private String[] expressions = new String[16];
+
+    private int size;
+
+    private final Map<String, int[]> counts = new HashMap<String, int[]>();
 
     /**
      * {@inheritDoc}
      */
     public void expressionResolutionFinished(String expression) {
-        expressions.pop();
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+
+        String top = expressions[--size];
+        expressions[size] = null;
+
+        int[] count = counts.get(top);
+        if (--count[0] == 0) {
+            counts.remove(top);
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     public void expressionResolutionStarted(String expression) {
-        expressions.push(expression);
+        if (size == expressions.length) {
+            expressions = Arrays.copyOf(expressions, size * 2);
+        }
+        expressions[size++] = expression;
+
+        int[] count = counts.get(expression);
+        if (count == null) {
+            counts.put(expression, new int[] {1});
+        } else {
+            count[0]++;
+        }
     }
 
     /**
@@ -52,7 +85,7 @@ public class SimpleRecursionInterceptor implements RecursionInterceptor {
      * stack.
      */
     public boolean hasRecursiveExpression(String expression) {
-        return expressions.contains(expression);
+        return counts.containsKey(expression);
     }
 
     /**
@@ -62,15 +95,25 @@ public class SimpleRecursionInterceptor implements RecursionInterceptor {
      * {@link Collections#EMPTY_LIST}.
      */
     public List getExpressionCycle(String expression) {
-        int idx = expressions.indexOf(expression);
-        if (idx < 0) {
+        if (!counts.containsKey(expression)) {
             return Collections.EMPTY_LIST;
-        } else {
-            return expressions.subList(idx, expressions.size());
         }
+
+        int idx = 0;
+        while (!equal(expressions[idx], expression)) {
+            idx++;
+        }
+
+        return new ArrayList<String>(Arrays.asList(expressions).subList(idx, size));
     }
 
     public void clear() {
-        expressions.clear();
+        Arrays.fill(expressions, 0, size, null);
+        size = 0;
+        counts.clear();
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
     }
 }
@@ -17,15 +17,29 @@ package org.codehaus.plexus.interpolation;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class StringSearchInterpolator implements Interpolator {
 
-    private Map<String, Object> existingAnswers = new HashMap<String, Object>();
+    private Map<String, Answer> existingAnswers = new HashMap<String, Answer>();
+
+    // for each expression, the cached answers that depend on it
+    private Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+
+    private long invalidations;
 
     private List<ValueSource> valueSources = new ArrayList<ValueSource>();
 
@@ -37,12 +51,21 @@ public class StringSearchInterpolator implements Interpolator {
 
     public static final String DEFAULT_END_EXPR = "}";
 
+    /** marks the value sources that interpolateAsync(..) left to the assembly of the output */
+    private static final Object NOT_ASKED = new Object();
+
     private String startExpr;
 
     private String endExpr;
 
     private String escapeString;
 
+    private int maxOutputLength = -1;
+
+    private int maxLookups = -1;
+
+    private boolean batchLookups = false;
+
     public StringSearchInterpolator() {
         this.startExpr = DEFAULT_START_EXPR;
         this.endExpr = DEFAULT_END_EXPR;
@@ -101,16 +124,268 @@ public class StringSearchInterpolator implements Interpolator {
      * TODO: Ensure unresolvable expressions don't trigger infinite recursion.
      */
     public String interpolate(String input, RecursionInterceptor recursionInterceptor) throws InterpolationException {
+        return interpolate(input, recursionInterceptor, (InterpolationDeadline) null);
+    }
+
+    /**
+     * Like {@link #interpolate(String, RecursionInterceptor)}, but gives up with an
+     * {@link InterpolationCancelledException} once the deadline expires. The deadline is checked before every
+     * expression lookup, and while waiting for an {@link AsyncValueSource}.
+     *
+     * @param input The input string to interpolate
+     * @param recursionInterceptor Used to protect the interpolation process from infinite recursion
+     * @param deadline When to give up, or null to never give up
+     * @return the interpolated string
+     * @throws InterpolationException in case of an error, or the expiry of the deadline
+     * @since 1.30
+     */
+    public String interpolate(String input, RecursionInterceptor recursionInterceptor, InterpolationDeadline deadline)
+            throws InterpolationException {
         try {
-            return interpolate(input, recursionInterceptor, new HashSet<String>());
+            return interpolate(input, recursionInterceptor, new Expansion(deadline));
         } finally {
             if (!cacheAnswers) {
-                existingAnswers.clear();
+                clearAnswers();
+            }
+        }
+    }
+
+    /**
+     * Resolves an input that consists of exactly one expression, such as <code>${project.version}</code>, without
+     * searching it for expressions first. Any other input is handled by
+     * {@link #interpolate(String, RecursionInterceptor)}.
+     *
+     * @since 1.30
+     */
+    @Override
+    public String resolveExpression(String expression, RecursionInterceptor recursionInterceptor)
+            throws InterpolationException {
+        if (expression == null) {
+            // return empty String to prevent NPE too
+            return "";
+        }
+
+        int endIdx = expression.length() - endExpr.length();
+        if (endIdx < startExpr.length()
+                || !expression.startsWith(startExpr)
+                || expression.indexOf(endExpr, 1) != endIdx) {
+            return interpolate(expression, recursionInterceptor);
+        }
+
+        try {
+            StringBuilder result = new StringBuilder();
+            String realExpr = expression.substring(startExpr.length(), endIdx);
+            if (!resolve(expression, realExpr, recursionInterceptor, new Expansion(null), result)) {
+                return expression;
+            }
+            return result.toString();
+        } finally {
+            if (!cacheAnswers) {
+                clearAnswers();
+            }
+        }
+    }
+
+    /**
+     * Interpolates the input like {@link #interpolate(String)}, but first looks up all expressions of the input
+     * concurrently: {@link AsyncValueSource}s are asked without blocking, for all expressions at once. The value
+     * sources are still consulted in order for each expression. Other value sources are not assumed to be safe to
+     * call concurrently, so they are only ever asked one call at a time: those in front of the first asynchronous
+     * one on the calling thread, before this method returns, and those behind it once the output is assembled,
+     * resolving any expressions within the values found, as usual.
+     * <p>
+     * Like {@link #interpolate(String)}, this must not be called again on the same instance until the returned
+     * future completes.</p>
+     *
+     * @param input The input string to interpolate
+     * @return a future of the interpolated string, which completes exceptionally with an
+     *         {@link InterpolationException} or the exception a value source failed with
+     * @since 1.30
+     */
+    public CompletableFuture<String> interpolateAsync(String input) {
+        return interpolateAsync(input, new SimpleRecursionInterceptor());
+    }
+
+    /**
+     * See {@link #interpolateAsync(String)}.
+     *
+     * @param input The input string to interpolate
+     * @param recursionInterceptor Used to protect the interpolation process from infinite recursion
+     * @return a future of the interpolated string
+     * @since 1.30
+     */
+    public CompletableFuture<String> interpolateAsync(String input, RecursionInterceptor recursionInterceptor) {
+        return interpolateAsync(input, recursionInterceptor, null);
+    }
+
+    /**
+     * Like {@link #interpolateAsync(String, RecursionInterceptor)}, but the returned future completes exceptionally
+     * with an {@link InterpolationCancelledException} as soon as the deadline expires, without waiting for the
+     * lookups in progress. The deadline is passed on to {@link AsyncValueSource}s, so they can give up as well.
+     *
+     * @param input The input string to interpolate
+     * @param recursionInterceptor Used to protect the interpolation process from infinite recursion
+     * @param deadline When to give up, or null to never give up
+     * @return a future of the interpolated string
+     * @since 1.30
+     */
+    public CompletableFuture<String> interpolateAsync(
+            final String input, final RecursionInterceptor recursionInterceptor, final InterpolationDeadline deadline) {
+        final Expansion expansion = new Expansion(deadline);
+        final List<ValueSource> sources = new ArrayList<ValueSource>(valueSources);
+        final Map<String, Object[]> found = new HashMap<String, Object[]>();
+
+        final Map<String, CompletableFuture<Void>> lookups = new LinkedHashMap<String, CompletableFuture<Void>>();
+        if (input != null && !sources.isEmpty()) {
+            ExpressionScanner scanner = new ExpressionScanner(startExpr, endExpr).withEscapeString(escapeString);
+            for (ExpressionReference reference : scanner.scan(input)) {
+                String expression = reference.getExpression();
+                if (lookupExistingAnswer(expression) == null) {
+                    Object[] answers = new Object[sources.size()];
+                    Arrays.fill(answers, NOT_ASKED);
+                    found.put(expression, answers);
+                    lookups.put(expression, lookup(expression, sources, 0, answers, deadline, true));
+                }
+            }
+        }
+
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+        final AtomicReference<InterpolationCancelledException> cancellation =
+                new AtomicReference<InterpolationCancelledException>();
+        CompletableFuture<Void> all = CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture<?>[0]));
+        if (deadline != null && !all.isDone()) {
+            final Runnable onExpiry = () -> {
+                for (Map.Entry<String, CompletableFuture<Void>> lookup : lookups.entrySet()) {
+                    if (!lookup.getValue().isDone()) {
+                        String reason = deadline.getExpiredReason();
+                        cancellation.compareAndSet(
+                                null,
+                                new InterpolationCancelledException(
+                                        reason != null ? reason : "Interpolation deadline exceeded",
+                                        startExpr + lookup.getKey() + endExpr,
+                                        Collections.singletonList(lookup.getKey())));
+                        break;
+                    }
+                }
+                // completes the lookups in progress, and so all of them, right away
+                for (CompletableFuture<Void> lookup : lookups.values()) {
+                    lookup.cancel(false);
+                }
+            };
+            deadline.addExpiryListener(onExpiry);
+            // once the lookups are done, the deadline must not keep them referenced, nor its timer running
+            all.whenComplete((ignored, failure) -> deadline.removeExpiryListener(onExpiry));
+        }
+        all.whenComplete((ignored, failure) -> {
+            // the result is only completed once this instance is no longer used, so it may be reused right away
+            String output = null;
+            Throwable error = null;
+            try {
+                if (failure != null) {
+                    error = cancellation.get() != null
+                            ? cancellation.get()
+                            : failure instanceof CompletionException && failure.getCause() != null
+                                    ? failure.getCause()
+                                    : failure;
+                } else {
+                    // the sources are asked in order until one has a value; hand over exactly those answers
+                    for (Map.Entry<String, Object[]> entry : found.entrySet()) {
+                        expansion.prefetched.add(entry.getKey());
+                        Object[] answers = entry.getValue();
+                        for (int i = 0; i < answers.length && answers[i] != NOT_ASKED; i++) {
+                            Map<String, Object> sourceAnswers = expansion.prefetchedAnswers.get(sources.get(i));
+                            if (sourceAnswers == null) {
+                                sourceAnswers = new HashMap<String, Object>();
+                                expansion.prefetchedAnswers.put(sources.get(i), sourceAnswers);
+                            }
+                            sourceAnswers.put(entry.getKey(), answers[i]);
+                            if (answers[i] != null) {
+                                break;
+                            }
+                        }
+                    }
+                    output = interpolate(input, recursionInterceptor, expansion);
+                }
+            } catch (InterpolationException | RuntimeException e) {
+                error = e;
+            } finally {
+                if (!cacheAnswers) {
+                    clearAnswers();
+                }
+            }
+
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(output);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Asks the value sources, starting at the given index, one after the other for the expression until one of
+     * them has a value. Value sources that are not asynchronous are only asked on the calling thread; once an
+     * asynchronous one was asked, the remaining ones are left to the assembly of the output.
+     */
+    private CompletableFuture<Void> lookup(
+            final String expression,
+            final List<ValueSource> sources,
+            final int index,
+            final Object[] answers,
+            final InterpolationDeadline deadline,
+            boolean callingThread) {
+        if (index == sources.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String reason = deadline != null ? deadline.getExpiredReason() : null;
+        if (reason != null) {
+            CompletableFuture<Void> cancelled = new CompletableFuture<Void>();
+            cancelled.completeExceptionally(new InterpolationCancelledException(
+                    reason, startExpr + expression + endExpr, Collections.singletonList(expression)));
+            return cancelled;
+        }
+
+        final ValueSource valueSource = sources.get(index);
+        CompletableFuture<Object> value;
+        if (valueSource instanceof AsyncValueSource) {
+            try {
+                value = deadline != null
+                        ? ((AsyncValueSource) valueSource).getValueAsync(expression, deadline)
+                        : ((AsyncValueSource) valueSource).getValueAsync(expression);
+            } catch (RuntimeException e) {
+                value = new CompletableFuture<Object>();
+                value.completeExceptionally(e);
+            }
+        } else if (callingThread) {
+            Object v;
+            try {
+                v = valueSource.getValue(expression, startExpr, endExpr);
+            } catch (RuntimeException e) {
+                CompletableFuture<Void> failed = new CompletableFuture<Void>();
+                failed.completeExceptionally(e);
+                return failed;
             }
+            answers[index] = v;
+            if (v != null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return lookup(expression, sources, index + 1, answers, deadline, true);
+        } else {
+            return CompletableFuture.completedFuture(null);
         }
+
+        return value.thenCompose(v -> {
+            answers[index] = v;
+            if (v != null) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            return lookup(expression, sources, index + 1, answers, deadline, false);
+        });
     }
 
-    private String interpolate(String input, RecursionInterceptor recursionInterceptor, Set<String> unresolvable)
+    private String interpolate(String input, RecursionInterceptor recursionInterceptor, Expansion expansion)
             throws InterpolationException {
         if (input == null) {
             // return empty String to prevent NPE too
@@ -120,7 +395,12 @@ public class StringSearchInterpolator implements Interpolator {
         int startIdx;
         int endIdx = -1;
         if ((startIdx = input.indexOf(startExpr, endIdx + 1)) > -1) {
+            if (batchLookups) {
+                prefetch(input, expansion);
+            }
+
             StringBuilder result = new StringBuilder(input.length() * 2);
+            String wholeExpr = null;
             do {
                 result.append(input, endIdx + 1, startIdx);
 
@@ -129,7 +409,7 @@ public class StringSearchInterpolator implements Interpolator {
                     break;
                 }
 
-                final String wholeExpr = input.substring(startIdx, endIdx + endExpr.length());
+                wholeExpr = input.substring(startIdx, endIdx + endExpr.length());
                 String realExpr = wholeExpr.substring(startExpr.length(), wholeExpr.length() - endExpr.length());
 
                 if (startIdx >= 0 && escapeString != null && escapeString.length() > 0) {
@@ -139,78 +419,17 @@ public class StringSearchInterpolator implements Interpolator {
                         if (escapeString.equals(escape)) {
                             result.append(wholeExpr);
                             result.replace(startEscapeIdx, startEscapeIdx + escapeString.length(), "");
+                            checkOutputLength(result.length(), wholeExpr, expansion);
                             continue;
                         }
                     }
                 }
 
-                boolean resolved = false;
-                if (!unresolvable.contains(wholeExpr)) {
-                    if (realExpr.startsWith(".")) {
-                        realExpr = realExpr.substring(1);
-                    }
-
-                    if (recursionInterceptor.hasRecursiveExpression(realExpr)) {
-                        throw new InterpolationCycleException(recursionInterceptor, realExpr, wholeExpr);
-                    }
-
-                    recursionInterceptor.expressionResolutionStarted(realExpr);
-                    try {
-                        Object value = getExistingAnswer(realExpr);
-                        Object bestAnswer = null;
-
-                        for (ValueSource valueSource : valueSources) {
-                            if (value != null) {
-                                break;
-                            }
-                            value = valueSource.getValue(realExpr, startExpr, endExpr);
-
-                            if (value != null && value.toString().contains(wholeExpr)) {
-                                bestAnswer = value;
-                                value = null;
-                            }
-                        }
-
-                        // this is the simplest recursion check to catch exact recursion
-                        // (non synonym), and avoid the extra effort of more string
-                        // searching.
-                        if (value == null && bestAnswer != null) {
-                            throw new InterpolationCycleException(recursionInterceptor, realExpr, wholeExpr);
-                        }
-
-                        if (value != null) {
-                            value = interpolate(String.valueOf(value), recursionInterceptor, unresolvable);
-
-                            if (postProcessors != null && !postProcessors.isEmpty()) {
-                                for (InterpolationPostProcessor postProcessor : postProcessors) {
-                                    Object newVal = postProcessor.execute(realExpr, value);
-                                    if (newVal != null) {
-                                        value = newVal;
-                                        break;
-                                    }
-                                }
-                            }
-
-                            // could use:
-                            // result = matcher.replaceFirst( stringValue );
-                            // but this could result in multiple lookups of stringValue, and replaceAll is not correct
-                            // behaviour
-                            result.append(String.valueOf(value));
-                            resolved = true;
-
-                            if (cacheAnswers) {
-                                existingAnswers.put(realExpr, value);
-                            }
-                        } else {
-                            unresolvable.add(wholeExpr);
-                        }
-                    } finally {
-                        recursionInterceptor.expressionResolutionFinished(realExpr);
-                    }
-                }
+                boolean resolved = resolve(wholeExpr, realExpr, recursionInterceptor, expansion, result);
 
                 if (!resolved) {
                     result.append(wholeExpr);
+                    checkOutputLength(result.length(), wholeExpr, expansion);
                 }
 
                 if (endIdx > -1) {
@@ -223,13 +442,246 @@ public class StringSearchInterpolator implements Interpolator {
             } else if (endIdx < input.length()) {
                 result.append(input, endIdx + 1, input.length());
             }
+            checkOutputLength(result.length(), wholeExpr, expansion);
 
             return result.toString();
         } else {
+            checkOutputLength(input.length(), null, expansion);
             return input;
         }
     }
 
+    /**
+     * Resolves a single expression found in the input and appends its value to the result.
+     *
+     * @return true if the expression was resolved, false if it must be left as-is
+     */
+    private boolean resolve(
+            String wholeExpr,
+            String realExpr,
+            RecursionInterceptor recursionInterceptor,
+            Expansion expansion,
+            StringBuilder result)
+            throws InterpolationException {
+        if (expansion.unresolvable.contains(wholeExpr)) {
+            if (!expansion.dependencies.isEmpty()) {
+                // the answer being resolved depends on this expression remaining unresolvable
+                Dependencies dependencies = expansion.dependencies.get(expansion.dependencies.size() - 1);
+                dependencies.expressions.add(realExpr.startsWith(".") ? realExpr.substring(1) : realExpr);
+                for (ValueSource valueSource : valueSources) {
+                    dependencies.consulted(valueSource);
+                }
+            }
+            return false;
+        }
+
+        if (realExpr.startsWith(".")) {
+            realExpr = realExpr.substring(1);
+        }
+
+        if (recursionInterceptor.hasRecursiveExpression(realExpr)) {
+            throw new InterpolationCycleException(recursionInterceptor, realExpr, wholeExpr);
+        }
+
+        recursionInterceptor.expressionResolutionStarted(realExpr);
+        expansion.path.add(realExpr);
+        Dependencies dependencies = null;
+        if (cacheAnswers) {
+            dependencies = new Dependencies();
+            dependencies.expressions.add(realExpr);
+            expansion.dependencies.add(dependencies);
+        }
+        try {
+            if (maxLookups >= 0 && ++expansion.lookups > maxLookups) {
+                throw new ExpansionLimitExceededException(
+                        "More than " + maxLookups + " expression lookups", wholeExpr, expansion.path);
+            }
+
+            Object value = lookupExistingAnswer(realExpr);
+            Answer existing = value != null && dependencies != null ? existingAnswers.get(realExpr) : null;
+            if (existing != null) {
+                dependencies.addAll(existing.dependencies);
+            }
+            Object bestAnswer = null;
+
+            for (ValueSource valueSource : valueSources) {
+                if (value != null) {
+                    break;
+                }
+                checkDeadline(wholeExpr, expansion);
+                if (dependencies != null) {
+                    dependencies.consulted(valueSource);
+                }
+                Map<String, Object> answers = expansion.prefetchedAnswers.get(valueSource);
+                if (answers != null && answers.containsKey(realExpr)) {
+                    value = answers.get(realExpr);
+                } else if (expansion.deadline != null && valueSource instanceof AsyncValueSource) {
+                    value = getValue((AsyncValueSource) valueSource, realExpr, wholeExpr, expansion);
+                } else {
+                    value = valueSource.getValue(realExpr, startExpr, endExpr);
+                }
+
+                if (value != null && value.toString().contains(wholeExpr)) {
+                    bestAnswer = value;
+                    value = null;
+                }
+            }
+
+            // this is the simplest recursion check to catch exact recursion
+            // (non synonym), and avoid the extra effort of more string
+            // searching.
+            if (value == null && bestAnswer != null) {
+                throw new InterpolationCycleException(recursionInterceptor, realExpr, wholeExpr);
+            }
+
+            if (value != null) {
+                // the output of the enclosing expansions counts towards the limit as well
+                long output = expansion.output;
+                expansion.output += result.length();
+                try {
+                    value = interpolate(String.valueOf(value), recursionInterceptor, expansion);
+                } finally {
+                    expansion.output = output;
+                }
+
+                if (postProcessors != null && !postProcessors.isEmpty()) {
+                    for (InterpolationPostProcessor postProcessor : postProcessors) {
+                        Object newVal = postProcessor.execute(realExpr, value);
+                        if (newVal != null) {
+                            value = newVal;
+                            break;
+                        }
+                    }
+                }
+
+                // could use:
+                // result = matcher.replaceFirst( stringValue );
+                // but this could result in multiple lookups of stringValue, and replaceAll is not correct
+                // behaviour
+                result.append(String.valueOf(value));
+                checkOutputLength(result.length(), wholeExpr, expansion);
+
+                if (cacheAnswers) {
+                    cache(realExpr, new Answer(value, dependencies));
+                }
+                return true;
+            } else {
+                expansion.unresolvable.add(wholeExpr);
+            }
+        } finally {
+            if (dependencies != null) {
+                // whatever this answer depends on, the answer it is nested in depends on as well
+                expansion.dependencies.remove(expansion.dependencies.size() - 1);
+                if (!expansion.dependencies.isEmpty()) {
+                    expansion.dependencies.get(expansion.dependencies.size() - 1).addAll(dependencies);
+                }
+            }
+            expansion.path.remove(expansion.path.size() - 1);
+            recursionInterceptor.expressionResolutionFinished(realExpr);
+        }
+
+        return false;
+    }
+
+    /**
+     * Looks up the expressions of the input that are neither cached nor fetched before with one call to each
+     * {@link BatchValueSource}, in order. An expression is only passed on to the next batch value source while it is
+     * still unanswered.
+     */
+    private void prefetch(String input, Expansion expansion) {
+        List<String> pending = null;
+        for (ValueSource valueSource : valueSources) {
+            if (!(valueSource instanceof BatchValueSource)) {
+                continue;
+            }
+
+            if (pending == null) {
+                pending = new ArrayList<String>();
+                ExpressionScanner scanner = new ExpressionScanner(startExpr, endExpr).withEscapeString(escapeString);
+                for (ExpressionReference reference : scanner.scan(input)) {
+                    String expression = reference.getExpression();
+                    if (lookupExistingAnswer(expression) == null && expansion.prefetched.add(expression)) {
+                        pending.add(expression);
+                    }
+                }
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            Map<String, Object> values = ((BatchValueSource) valueSource).getValues(new ArrayList<String>(pending));
+            Map<String, Object> answers = expansion.prefetchedAnswers.get(valueSource);
+            if (answers == null) {
+                answers = new HashMap<String, Object>();
+                expansion.prefetchedAnswers.put(valueSource, answers);
+            }
+            for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+                String expression = it.next();
+                Object value = values != null ? values.get(expression) : null;
+                answers.put(expression, value);
+                if (value != null) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for an asynchronous lookup, but no longer than the deadline of the expansion allows.
+     */
+    private static Object getValue(
+            AsyncValueSource valueSource, String realExpr, String wholeExpr, Expansion expansion)
+            throws InterpolationCancelledException {
+        CompletableFuture<Object> value = valueSource.getValueAsync(realExpr, expansion.deadline);
+        final CompletableFuture<Void> expired = new CompletableFuture<Void>();
+        Runnable onExpiry = () -> expired.complete(null);
+        expansion.deadline.addExpiryListener(onExpiry);
+        try {
+            CompletableFuture.anyOf(value, expired).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // the lookup failed, which is reported below
+        } finally {
+            expansion.deadline.removeExpiryListener(onExpiry);
+        }
+
+        if (!value.isDone()) {
+            value.cancel(false);
+            checkDeadline(wholeExpr, expansion);
+            throw new InterpolationCancelledException("Interpolation deadline exceeded", wholeExpr, expansion.path);
+        }
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void checkDeadline(String expression, Expansion expansion) throws InterpolationCancelledException {
+        if (expansion.deadline != null) {
+            String reason = expansion.deadline.getExpiredReason();
+            if (reason != null) {
+                throw new InterpolationCancelledException(reason, expression, expansion.path);
+            }
+        }
+    }
+
+    /**
+     * Checks the output of the whole call: the given length, produced at the current level of expansion, and what
+     * the enclosing expansions produced so far.
+     */
+    private void checkOutputLength(int length, String expression, Expansion expansion)
+            throws ExpansionLimitExceededException {
+        if (maxOutputLength >= 0 && expansion.output + length > maxOutputLength) {
+            throw new ExpansionLimitExceededException(
+                    "Output exceeds " + maxOutputLength + " characters", expression, expansion.path);
+        }
+    }
+
     /**
      * Return any feedback messages and errors that were generated - but
      * suppressed - during the interpolation process. Since unresolvable
@@ -270,6 +722,103 @@ public class StringSearchInterpolator implements Interpolator {
 
     public void clearAnswers() {
         existingAnswers.clear();
+        dependents.clear();
+    }
+
+    /**
+     * Evict the cached answers that depend on an expression: its own answer, and the answers of all expressions
+     * whose values referenced it, directly or through other expressions - including references it did not resolve.
+     * Use this when the value of the expression changed in one of the value sources.
+     *
+     * @param expression The expression, without delimiters
+     * @return the number of answers evicted
+     * @since 1.30
+     */
+    public int invalidate(String expression) {
+        Set<String> answers = dependents.get(expression);
+        if (answers == null) {
+            return 0;
+        }
+
+        int evicted = 0;
+        for (String answer : new ArrayList<String>(answers)) {
+            if (evict(answer)) {
+                evicted++;
+            }
+        }
+        invalidations += evicted;
+        return evicted;
+    }
+
+    /**
+     * Evict the cached answers for which the value source was consulted, whether it had a value or not. Use this
+     * when several values of the value source changed.
+     *
+     * @param valueSource The value source
+     * @return the number of answers evicted
+     * @since 1.30
+     */
+    public int invalidate(ValueSource valueSource) {
+        List<String> answers = new ArrayList<String>();
+        for (Map.Entry<String, Answer> answer : existingAnswers.entrySet()) {
+            if (answer.getValue().dependencies.valueSources.contains(valueSource)) {
+                answers.add(answer.getKey());
+            }
+        }
+
+        for (String answer : answers) {
+            evict(answer);
+        }
+        invalidations += answers.size();
+        return answers.size();
+    }
+
+    /**
+     * @return the number of cached answers evicted so far by {@link #invalidate(String)},
+     *         {@link #invalidate(ValueSource)} or because a {@link VersionedValueSource} they depend on changed;
+     *         answers dropped by {@link #clearAnswers()} are not counted
+     * @since 1.30
+     */
+    public long getInvalidationCount() {
+        return invalidations;
+    }
+
+    private void cache(String expression, Answer answer) {
+        evict(expression);
+        existingAnswers.put(expression, answer);
+        for (String dependency : answer.dependencies.expressions) {
+            Set<String> answers = dependents.get(dependency);
+            if (answers == null) {
+                answers = new HashSet<String>();
+                dependents.put(dependency, answers);
+            }
+            answers.add(expression);
+        }
+    }
+
+    private boolean evict(String expression) {
+        Answer answer = existingAnswers.remove(expression);
+        if (answer == null) {
+            return false;
+        }
+        for (String dependency : answer.dependencies.expressions) {
+            Set<String> answers = dependents.get(dependency);
+            if (answers != null) {
+                answers.remove(expression);
+                if (answers.isEmpty()) {
+                    dependents.remove(dependency);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the start delimiter of the expressions understood by this interpolator
+     * @since 1.30
+     */
+    public String getStartExpr() {
+        return startExpr;
     }
 
     public String getEscapeString() {
@@ -280,12 +829,154 @@ public class StringSearchInterpolator implements Interpolator {
         this.escapeString = escapeString;
     }
 
+    public int getMaxOutputLength() {
+        return maxOutputLength;
+    }
+
+    /**
+     * Limit the length of the output of a single interpolate(..) call. Expressions are expanded into that output, so
+     * the characters produced at all nesting levels, literal text included, count towards the same limit, which is
+     * checked as the output grows. Exceeding it fails the call with an
+     * {@link ExpansionLimitExceededException}.
+     *
+     * @param maxOutputLength The maximum number of characters, or -1 (the default) for no limit.
+     * @since 1.30
+     */
+    public void setMaxOutputLength(int maxOutputLength) {
+        this.maxOutputLength = maxOutputLength;
+    }
+
+    public boolean isBatchLookups() {
+        return batchLookups;
+    }
+
+    /**
+     * Look up the expressions of an input, and of every resolved value that contains further expressions, with a
+     * single {@link BatchValueSource#getValues(java.util.Collection)} call per batch-capable value source before
+     * resolving them. Other value sources are still asked one expression at a time, and the order in which value
+     * sources are consulted is unchanged.
+     *
+     * @param batchLookups true to enable batch lookups, false (the default) to ask every value source one expression
+     *                     at a time.
+     * @since 1.30
+     */
+    public void setBatchLookups(boolean batchLookups) {
+        this.batchLookups = batchLookups;
+    }
+
+    public int getMaxLookups() {
+        return maxLookups;
+    }
+
+    /**
+     * Limit the number of expressions, nested ones included, a single interpolate(..) call may resolve. Exceeding
+     * it fails the call with an {@link ExpansionLimitExceededException}.
+     *
+     * @param maxLookups The maximum number of expression lookups, or -1 (the default) for no limit.
+     * @since 1.30
+     */
+    public void setMaxLookups(int maxLookups) {
+        this.maxLookups = maxLookups;
+    }
+
     /**
      * For testing purposes only. Not part of the public API.
      * @param key the key of a possible existing answer.
      * @return the associated interpolated object, or null if there is none.
      */
     protected Object getExistingAnswer(String key) {
-        return existingAnswers.get(key);
+        Answer answer = existingAnswers.get(key);
+        return answer != null && answer.dependencies.isCurrent() ? answer.value : null;
+    }
+
+    /**
+     * Looks up a cached answer like {@link #getExistingAnswer(String)}, after evicting it if a versioned value source
+     * it depends on changed since.
+     */
+    private Object lookupExistingAnswer(String key) {
+        Answer answer = existingAnswers.get(key);
+        if (answer != null && !answer.dependencies.isCurrent()) {
+            evict(key);
+            invalidations++;
+        }
+        return getExistingAnswer(key);
+    }
+
+    /**
+     * A cached answer, and what it depends on.
+     */
+    private static final class Answer {
+        private final Object value;
+
+        private final Dependencies dependencies;
+
+        Answer(Object value, Dependencies dependencies) {
+            this.value = value;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * What a cached answer depends on: the expressions looked up to resolve it, nested ones included, and the value
+     * sources consulted, with the versions of the versioned ones at that time.
+     */
+    private static final class Dependencies {
+        private final Set<String> expressions = new HashSet<String>();
+
+        private final Set<ValueSource> valueSources = new HashSet<ValueSource>();
+
+        private final Map<VersionedValueSource, Long> versions = new HashMap<VersionedValueSource, Long>();
+
+        void consulted(ValueSource valueSource) {
+            if (valueSources.add(valueSource) && valueSource instanceof VersionedValueSource) {
+                versions.put((VersionedValueSource) valueSource, ((VersionedValueSource) valueSource).getVersion());
+            }
+        }
+
+        void addAll(Dependencies other) {
+            expressions.addAll(other.expressions);
+            for (ValueSource valueSource : other.valueSources) {
+                if (valueSources.add(valueSource) && valueSource instanceof VersionedValueSource) {
+                    versions.put((VersionedValueSource) valueSource, other.versions.get(valueSource));
+                }
+            }
+        }
+
+        boolean isCurrent() {
+            for (Map.Entry<VersionedValueSource, Long> version : versions.entrySet()) {
+                if (version.getKey().getVersion() != version.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * State of a single interpolate(..) call.
+     */
+    private static final class Expansion {
+        private final Set<String> unresolvable = new HashSet<String>();
+
+        private final List<String> path = new ArrayList<String>();
+
+        private final Set<String> prefetched = new HashSet<String>();
+
+        private final Map<ValueSource, Map<String, Object>> prefetchedAnswers =
+                new IdentityHashMap<ValueSource, Map<String, Object>>();
+
+        private final InterpolationDeadline deadline;
+
+        // what each cached answer being resolved depends on, innermost last
+        private final List<Dependencies> dependencies = new ArrayList<Dependencies>();
+
+        private int lookups;
+
+        // output of the enclosing expansions, which the current one is going to be part of
+        private long output;
+
+        Expansion(InterpolationDeadline deadline) {
+            this.deadline = deadline;
+        }
     }
 }
@@ -0,0 +1,282 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable value source for very large sets of keys and values, such as generated properties with millions of
+ * entries. Instead of a {@link java.util.HashMap} with several objects per entry, the keys and values are packed into a
+ * single byte array - as ISO-8859-1 when all of them allow it, UTF-8 otherwise - and found through an open addressing
+ * table of int hashes and offsets. A String is only created for the value of an expression that is found.
+ *
+ * @since 1.30
+ */
+public class StringTableValueSource extends AbstractValueSource implements EnumerableValueSource {
+
+    private final Charset charset;
+
+    // for each entry, in order: key length, key, value length, value; lengths as variable length ints
+    private final byte[] data;
+
+    private final int[] hashes;
+
+    // entry offset + 1, 0 for an empty slot
+    private final int[] offsets;
+
+    private final int size;
+
+    /**
+     * Copy the String keys of the supplied map, with their non-null values as Strings, into a new string table.
+     *
+     * @param values key,value of mapping, for instance {@link java.util.Properties}
+     */
+    public StringTableValueSource(Map<?, ?> values) {
+        super(false);
+
+        boolean latin1 = true;
+        int count = 0;
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            if (entry.getKey() instanceof String && entry.getValue() != null) {
+                count++;
+                latin1 = latin1 && isLatin1((String) entry.getKey()) && isLatin1(String.valueOf(entry.getValue()));
+            }
+        }
+        charset = latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+
+        long length = 0;
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            if (entry.getKey() instanceof String && entry.getValue() != null) {
+                length += encodedLength((String) entry.getKey()) + encodedLength(String.valueOf(entry.getValue()));
+            }
+        }
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many characters for a string table: " + length + " bytes");
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(count * 4 / 3, 1)) * 2;
+        data = new byte[(int) length];
+        hashes = new int[capacity];
+        offsets = new int[capacity];
+        size = count;
+
+        int pos = 0;
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            if (entry.getKey() instanceof String && entry.getValue() != null) {
+                String key = (String) entry.getKey();
+                int hash = key.hashCode();
+                int slot = mix(hash) & (capacity - 1);
+                while (offsets[slot] != 0) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                hashes[slot] = hash;
+                offsets[slot] = pos + 1;
+
+                pos = encode(key, pos);
+                pos = encode(String.valueOf(entry.getValue()), pos);
+            }
+        }
+    }
+
+    /**
+     * Lookup the supplied expression as a key, and return its value.
+     */
+    public Object getValue(String expression) {
+        if (expression == null) {
+            return null;
+        }
+
+        int hash = expression.hashCode();
+        int mask = offsets.length - 1;
+        byte[] key = null;
+        for (int slot = mix(hash) & mask; offsets[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] != hash) {
+                continue;
+            }
+
+            int pos = offsets[slot] - 1;
+            int keyLength = readLength(pos);
+            pos = skipLength(pos);
+            boolean matches;
+            if (charset == StandardCharsets.ISO_8859_1) {
+                matches = keyLength == expression.length() && equalsLatin1(pos, expression);
+            } else {
+                if (key == null) {
+                    key = expression.getBytes(StandardCharsets.UTF_8);
+                }
+                matches = keyLength == key.length && equalsBytes(pos, key);
+            }
+            if (matches) {
+                pos += keyLength;
+                return new String(data, skipLength(pos), readLength(pos), charset);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, Object> getEntries() {
+        Map<String, Object> entries = new LinkedHashMap<String, Object>();
+        int pos = 0;
+        while (pos < data.length) {
+            int keyLength = readLength(pos);
+            pos = skipLength(pos);
+            String key = new String(data, pos, keyLength, charset);
+            pos += keyLength;
+            int valueLength = readLength(pos);
+            pos = skipLength(pos);
+            entries.put(key, new String(data, pos, valueLength, charset));
+            pos += valueLength;
+        }
+        return entries;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes taken by the packed entries and the table used to find them
+     */
+    public long getSizeInBytes() {
+        return data.length + 4L * hashes.length + 4L * offsets.length;
+    }
+
+    private static boolean isLatin1(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long encodedLength(String s) {
+        long length;
+        if (charset == StandardCharsets.ISO_8859_1) {
+            length = s.length();
+        } else {
+            length = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    length++;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c)
+                        && i + 1 < s.length()
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired, replaced like String.getBytes does
+                    length++;
+                } else {
+                    length += 3;
+                }
+            }
+        }
+        return lengthOfLength(length) + length;
+    }
+
+    /**
+     * Writes the length and bytes of the string at pos.
+     *
+     * @return the position after them
+     */
+    private int encode(String s, int pos) {
+        if (charset == StandardCharsets.ISO_8859_1) {
+            pos = writeLength(s.length(), pos);
+            for (int i = 0; i < s.length(); i++) {
+                data[pos++] = (byte) s.charAt(i);
+            }
+            return pos;
+        }
+
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        pos = writeLength(bytes.length, pos);
+        System.arraycopy(bytes, 0, data, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private static int lengthOfLength(long length) {
+        int bytes = 1;
+        while (length >= 0x80) {
+            length >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private int writeLength(int length, int pos) {
+        while (length >= 0x80) {
+            data[pos++] = (byte) (length | 0x80);
+            length >>>= 7;
+        }
+        data[pos++] = (byte) length;
+        return pos;
+    }
+
+    private int readLength(int pos) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return length;
+    }
+
+    private int skipLength(int pos) {
+        while (data[pos++] < 0) {
+            // continuation byte
+        }
+        return pos;
+    }
+
+    private boolean equalsLatin1(int pos, String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if ((data[pos + i] & 0xFF) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equalsBytes(int pos, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (data[pos + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
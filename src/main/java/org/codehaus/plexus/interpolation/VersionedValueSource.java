@@ -0,0 +1,34 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Implemented by value sources whose values change over time, such as {@link ReloadingPropertiesValueSource}. A
+ * {@link StringSearchInterpolator} that caches answers remembers the versions of the versioned value sources each
+ * answer was resolved from, and resolves it again once one of them has changed, rather than requiring
+ * {@link Interpolator#clearAnswers()}. Value sources are only recognized as versioned when they are added to the
+ * interpolator directly, not wrapped in another value source.
+ *
+ * @since 1.30
+ */
+public interface VersionedValueSource extends ValueSource {
+
+    /**
+     * @return a number that changes whenever the values of this value source may have changed
+     */
+    long getVersion();
+}
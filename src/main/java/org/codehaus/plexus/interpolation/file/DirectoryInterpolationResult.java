@@ -0,0 +1,109 @@
+package org.codehaus.plexus.interpolation.file;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a {@link DirectoryInterpolator} run: one {@link FileInterpolationResult} per file, in the order the
+ * files were found.
+ *
+ * @since 1.30
+ */
+public class DirectoryInterpolationResult {
+
+    private final List<FileInterpolationResult> files;
+
+    private final long elapsedNanos;
+
+    public DirectoryInterpolationResult(List<FileInterpolationResult> files, long elapsedNanos) {
+        this.files = Collections.unmodifiableList(new ArrayList<FileInterpolationResult>(files));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<FileInterpolationResult> getFiles() {
+        return files;
+    }
+
+    /**
+     * @return the files that could not be interpolated
+     */
+    public List<FileInterpolationResult> getFailures() {
+        List<FileInterpolationResult> failures = new ArrayList<FileInterpolationResult>();
+        for (FileInterpolationResult file : files) {
+            if (!file.isSuccessful()) {
+                failures.add(file);
+            }
+        }
+        return failures;
+    }
+
+    public boolean isSuccessful() {
+        for (FileInterpolationResult file : files) {
+            if (!file.isSuccessful()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of targets that were left untouched because they already had the interpolated content
+     */
+    public int getWritesAvoided() {
+        int avoided = 0;
+        for (FileInterpolationResult file : files) {
+            if (file.isSuccessful() && !file.isWritten()) {
+                avoided++;
+            }
+        }
+        return avoided;
+    }
+
+    /**
+     * @return the number of files that were skipped because their targets were up to date
+     */
+    public int getUpToDateCount() {
+        int upToDate = 0;
+        for (FileInterpolationResult file : files) {
+            if (file.isUpToDate()) {
+                upToDate++;
+            }
+        }
+        return upToDate;
+    }
+
+    /**
+     * @return the wall clock time of the whole run, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the time spent on the individual files added up, in nanoseconds
+     */
+    public long getTotalFileNanos() {
+        long total = 0;
+        for (FileInterpolationResult file : files) {
+            total += file.getElapsedNanos();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,366 @@
+package org.codehaus.plexus.interpolation.file;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.codehaus.plexus.interpolation.ExpressionReference;
+import org.codehaus.plexus.interpolation.ExpressionScanner;
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+
+/**
+ * Interpolates every matching file of a source directory tree into the same relative location of a target directory
+ * tree, with a {@link FileInterpolator} per worker and a bounded number of workers running in parallel. Filtering
+ * many small files is mostly waiting for files to be opened and closed, which the workers overlap.
+ * <p>
+ * All workers share one {@link FixedStringSearchInterpolator}, which is immutable; each of them resolves expressions
+ * with its own interpolation state. Workers run on a fixed thread pool created for the run, unless an
+ * {@link ExecutorService} is given with {@link #setExecutor(ExecutorService)} - for instance one that starts a virtual
+ * thread per task on Java 21 and later.</p>
+ * <p>
+ * With {@link #setManifestFile(Path)}, the run records for every file a hash of its source, the expressions it
+ * references and a hash of their values. The next run skips the files for which none of these changed and whose
+ * target is still in place, without writing them or even scanning them for expressions.</p>
+ * <p>
+ * A file that cannot be interpolated does not stop the run: its error is reported in the
+ * {@link DirectoryInterpolationResult}, along with the time spent on every file.</p>
+ *
+ * @since 1.30
+ */
+public class DirectoryInterpolator {
+
+    private final FixedStringSearchInterpolator interpolator;
+
+    private final String beginToken;
+
+    private final String endToken;
+
+    private String escapeString;
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    private List<String> includes = new ArrayList<String>();
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private ExecutorService executor;
+
+    private boolean writeIfChanged;
+
+    private Path manifestFile;
+
+    /**
+     * Use the default <code>${</code> and <code>}</code> tokens.
+     *
+     * @param interpolator resolves the expressions found in the files
+     */
+    public DirectoryInterpolator(FixedStringSearchInterpolator interpolator) {
+        this(interpolator, FileInterpolator.DEFAULT_BEGIN_TOKEN, FileInterpolator.DEFAULT_END_TOKEN);
+    }
+
+    /**
+     * @param interpolator resolves the expressions found in the files; it should use the same tokens
+     * @param beginToken the begin token of expressions
+     * @param endToken the end token of expressions
+     */
+    public DirectoryInterpolator(FixedStringSearchInterpolator interpolator, String beginToken, String endToken) {
+        this.interpolator = interpolator;
+        this.beginToken = beginToken;
+        this.endToken = endToken;
+    }
+
+    /**
+     * Interpolate the files of <code>sourceDirectory</code> into <code>targetDirectory</code>, creating directories
+     * as needed.
+     *
+     * @param sourceDirectory the directory tree to read
+     * @param targetDirectory the directory tree to write
+     * @return the outcome for every file
+     * @throws IOException if the source directory cannot be walked
+     */
+    public DirectoryInterpolationResult interpolate(final Path sourceDirectory, final Path targetDirectory)
+            throws IOException {
+        long start = System.nanoTime();
+
+        final List<Path> files = findFiles(sourceDirectory);
+        final InterpolationManifest manifest = manifestFile != null
+                ? InterpolationManifest.load(
+                        manifestFile,
+                        beginToken + '\0' + endToken + '\0' + escapeString + '\0' + charset + '\0'
+                                + targetDirectory.toAbsolutePath().normalize())
+                : null;
+        final FileInterpolationResult[] results = new FileInterpolationResult[files.size()];
+        final AtomicInteger next = new AtomicInteger();
+
+        List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < Math.min(parallelism, files.size()); i++) {
+            workers.add(new Callable<Void>() {
+                public Void call() {
+                    FileInterpolator fileInterpolator = newFileInterpolator();
+                    int index;
+                    while ((index = next.getAndIncrement()) < files.size()) {
+                        Path source = files.get(index);
+                        String path = sourceDirectory.relativize(source).toString();
+                        Path target = targetDirectory.resolve(path);
+                        results[index] = interpolate(fileInterpolator, manifest, path, source, target);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executorService = executor != null ? executor : newThreadPool(workers.size());
+        try {
+            for (Future<Void> future : executorService.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException error =
+                    new InterruptedIOException("Interrupted while interpolating " + sourceDirectory);
+            error.initCause(e);
+            throw error;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Interpolation worker failed", e.getCause());
+        } finally {
+            if (executorService != executor) {
+                executorService.shutdown();
+            }
+        }
+
+        if (manifest != null) {
+            manifest.store();
+        }
+
+        return new DirectoryInterpolationResult(Arrays.asList(results), System.nanoTime() - start);
+    }
+
+    private List<Path> findFiles(Path sourceDirectory) throws IOException {
+        FileSystem fileSystem = sourceDirectory.getFileSystem();
+        List<PathMatcher> matchers = new ArrayList<PathMatcher>();
+        for (String include : includes) {
+            matchers.add(fileSystem.getPathMatcher("glob:" + include));
+        }
+
+        List<Path> files = new ArrayList<Path>();
+        try (Stream<Path> walk = Files.walk(sourceDirectory)) {
+            for (Path file : (Iterable<Path>) walk::iterator) {
+                if (Files.isRegularFile(file) && isIncluded(sourceDirectory.relativize(file), matchers)) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static boolean isIncluded(Path relativePath, List<PathMatcher> matchers) {
+        if (matchers.isEmpty()) {
+            return true;
+        }
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private FileInterpolator newFileInterpolator() {
+        FileInterpolator fileInterpolator =
+                new FileInterpolator(interpolator.asBasicInterpolator(), beginToken, endToken);
+        fileInterpolator.setEscapeString(escapeString);
+        fileInterpolator.setCharset(charset);
+        fileInterpolator.setWriteIfChanged(writeIfChanged);
+        return fileInterpolator;
+    }
+
+    private FileInterpolationResult interpolate(
+            FileInterpolator fileInterpolator, InterpolationManifest manifest, String path, Path source, Path target) {
+        long start = System.nanoTime();
+        boolean written = false;
+        boolean upToDate = false;
+        Exception error = null;
+        try {
+            byte[] content = null;
+            String sourceHash = null;
+            if (manifest != null) {
+                content = Files.readAllBytes(source);
+                sourceHash = InterpolationManifest.hash(content);
+                InterpolationManifest.Entry entry = manifest.getPrevious(path);
+                if (entry != null
+                        && entry.sourceHash.equals(sourceHash)
+                        && Files.isRegularFile(target)
+                        && Files.size(target) == entry.targetSize
+                        && entry.valuesHash.equals(hashValues(fileInterpolator, entry.expressions))) {
+                    manifest.put(path, entry);
+                    upToDate = true;
+                }
+            }
+
+            if (!upToDate) {
+                Path parent = target.getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                written = content != null
+                        ? fileInterpolator.interpolate(content, source, target)
+                        : fileInterpolator.interpolate(source, target);
+
+                if (manifest != null) {
+                    List<String> expressions = new ArrayList<String>();
+                    for (ExpressionReference reference : new ExpressionScanner(beginToken, endToken)
+                            .withEscapeString(escapeString)
+                            .scan(new String(content, charset))) {
+                        expressions.add(reference.getExpression());
+                    }
+                    manifest.put(
+                            path,
+                            new InterpolationManifest.Entry(
+                                    sourceHash,
+                                    Files.size(target),
+                                    expressions,
+                                    hashValues(fileInterpolator, expressions)));
+                }
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+        return new FileInterpolationResult(source, target, System.nanoTime() - start, written, upToDate, error);
+    }
+
+    private static String hashValues(FileInterpolator fileInterpolator, List<String> expressions)
+            throws InterpolationException {
+        List<String> values = new ArrayList<String>(expressions.size());
+        for (String expression : expressions) {
+            values.add(fileInterpolator.resolve(expression));
+        }
+        return InterpolationManifest.hash(expressions, values);
+    }
+
+    private static ExecutorService newThreadPool(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "plexus-interpolation-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public String getEscapeString() {
+        return escapeString;
+    }
+
+    /**
+     * @param escapeString see {@link FileInterpolator#setEscapeString(String)}
+     */
+    public void setEscapeString(String escapeString) {
+        this.escapeString = escapeString;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @param charset the encoding of both source and target files, UTF-8 by default
+     */
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    /**
+     * @param includes glob patterns, such as <code>**&#47;*.properties</code>, matched against the paths of files
+     *                 relative to the source directory; all files are included if there are none
+     */
+    public void setIncludes(List<String> includes) {
+        this.includes = new ArrayList<String>(includes);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism the maximum number of files interpolated at the same time, the number of available
+     *                    processors by default
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public boolean isWriteIfChanged() {
+        return writeIfChanged;
+    }
+
+    /**
+     * @param writeIfChanged see {@link FileInterpolator#setWriteIfChanged(boolean)}
+     */
+    public void setWriteIfChanged(boolean writeIfChanged) {
+        this.writeIfChanged = writeIfChanged;
+    }
+
+    public Path getManifestFile() {
+        return manifestFile;
+    }
+
+    /**
+     * @param manifestFile where to keep track of what the targets were produced from, so that runs can skip the files
+     *                     that would come out the same; null (the default) to interpolate every file on every run
+     */
+    public void setManifestFile(Path manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor runs the workers instead of a thread pool created for each run; it is not shut down
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+}
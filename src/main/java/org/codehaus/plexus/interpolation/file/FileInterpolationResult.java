@@ -0,0 +1,97 @@
+package org.codehaus.plexus.interpolation.file;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.file.Path;
+
+/**
+ * The outcome of interpolating a single file as part of a {@link DirectoryInterpolator} run.
+ *
+ * @since 1.30
+ */
+public class FileInterpolationResult {
+
+    private final Path source;
+
+    private final Path target;
+
+    private final long elapsedNanos;
+
+    private final boolean written;
+
+    private final boolean upToDate;
+
+    private final Exception error;
+
+    public FileInterpolationResult(
+            Path source, Path target, long elapsedNanos, boolean written, boolean upToDate, Exception error) {
+        this.source = source;
+        this.target = target;
+        this.elapsedNanos = elapsedNanos;
+        this.written = written;
+        this.upToDate = upToDate;
+        this.error = error;
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the time spent on this file, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return false if the target was left untouched, because it already had the interpolated content
+     */
+    public boolean isWritten() {
+        return written;
+    }
+
+    /**
+     * @return true if the file was not interpolated at all, because neither the source nor the values of its
+     *         expressions changed since the target was produced
+     */
+    public boolean isUpToDate() {
+        return upToDate;
+    }
+
+    /**
+     * @return the reason this file could not be interpolated, or null if it was
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return source + " -> " + target + " (" + (elapsedNanos / 1000000) + " ms"
+                + (error != null ? ", failed: " + error : upToDate ? ", up to date" : written ? "" : ", unchanged")
+                + ")";
+    }
+}
@@ -0,0 +1,535 @@
+package org.codehaus.plexus.interpolation.file;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.codehaus.plexus.interpolation.BasicInterpolator;
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.interpolation.Interpolator;
+import org.codehaus.plexus.interpolation.RecursionInterceptor;
+import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
+import org.codehaus.plexus.interpolation.StringSearchInterpolator;
+
+/**
+ * Interpolates the expressions of a source file into a target file, using NIO channels instead of a
+ * {@link java.io.Reader}/{@link java.io.Writer} pair. The source is read through its channel (or memory-mapped when it
+ * is large) and decoded in one go into a buffer that is reused for the next file; the literal text between
+ * expressions is then encoded and written in bulk, and each expression is handed to the interpolator as a whole.
+ * Files that do not contain the begin token at all are copied with {@link FileChannel#transferTo}, byte for byte.
+ * <p>
+ * When the charset is UTF-8, ISO-8859-1 or US-ASCII and the tokens and escape string are plain ASCII, files are not
+ * decoded at all: the bytes are searched for the tokens directly (in these charsets ASCII bytes never occur inside the
+ * encoding of another character), only the expressions are decoded, only the resolved values are encoded, and the
+ * rest of the file is copied byte for byte. This byte level scan can be turned off with
+ * {@link #setByteLevelScan(boolean)}, in which case malformed input is replaced like a {@link java.io.Reader}
+ * would.</p>
+ * <p>
+ * Expressions are found the way {@link StringSearchInterpolator} finds them: from a begin token to the next end token,
+ * with an optional escape string directly in front of the begin token to keep the expression as-is. Expressions that
+ * cannot be resolved are left in the output unchanged.</p>
+ * <p>
+ * With {@link #setWriteIfChanged(boolean)}, the output is compared with the existing target as it is produced; a
+ * target that already has the interpolated content keeps its modification time. From the first difference on, the
+ * output goes to a temporary file that replaces the target once it is complete, so a failure halfway leaves the
+ * previous target intact.</p>
+ * <p>
+ * Instances keep their buffers between calls and are not thread-safe.</p>
+ *
+ * @since 1.30
+ */
+public class FileInterpolator {
+
+    public static final String DEFAULT_BEGIN_TOKEN = "${";
+
+    public static final String DEFAULT_END_TOKEN = "}";
+
+    /** sources of at least this many bytes are memory-mapped instead of read */
+    private static final int MAP_THRESHOLD = 1024 * 1024;
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    /** charsets that encode ASCII as single bytes that never occur in the encoding of other characters */
+    private static final Set<Charset> ASCII_COMPATIBLE_CHARSETS = new HashSet<Charset>(
+            Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII));
+
+    private final BasicInterpolator interpolator;
+
+    private final String beginToken;
+
+    private final String endToken;
+
+    private String escapeString;
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    private boolean byteLevelScan = true;
+
+    /** the tokens and escape string in bytes, or null if the byte level scan cannot be used */
+    private byte[][] tokenBytes;
+
+    private CharsetDecoder decoder;
+
+    private CharsetEncoder encoder;
+
+    /** reusable buffer for sources that are read rather than mapped */
+    private ByteBuffer input;
+
+    /** reusable buffer for the decoded source */
+    private CharBuffer content;
+
+    /** reusable buffer for encoded output */
+    private ByteBuffer output;
+
+    /** reusable buffer for the current content of targets */
+    private ByteBuffer existing;
+
+    private boolean writeIfChanged;
+
+    /**
+     * Use the default <code>${</code> and <code>}</code> tokens.
+     *
+     * @param interpolator resolves the expressions found in the files
+     */
+    public FileInterpolator(BasicInterpolator interpolator) {
+        this(interpolator, DEFAULT_BEGIN_TOKEN, DEFAULT_END_TOKEN);
+    }
+
+    /**
+     * @param interpolator resolves the expressions found in the files; it should use the same tokens
+     * @param beginToken the begin token of expressions
+     * @param endToken the end token of expressions
+     */
+    public FileInterpolator(BasicInterpolator interpolator, String beginToken, String endToken) {
+        this.interpolator = interpolator;
+        this.beginToken = beginToken;
+        this.endToken = endToken;
+    }
+
+    /**
+     * Interpolate the content of <code>source</code> into <code>target</code>, replacing the target if it exists.
+     * The target may be the source itself.
+     *
+     * @param source the file to read
+     * @param target the file to write
+     * @return false if the target was left untouched because it already had the interpolated content, see
+     *         {@link #setWriteIfChanged(boolean)}
+     * @throws IOException if either file cannot be read or written
+     * @throws InterpolationException if an expression cannot be interpolated, e.g. because of a cycle
+     */
+    public boolean interpolate(Path source, Path target) throws IOException, InterpolationException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to interpolate: " + source);
+            }
+
+            // a mapped source could change under our feet while the same file is written
+            boolean sameFile = isSameFile(source, target);
+            return interpolate(read(in, (int) size, !sameFile), in, sameFile, target);
+        }
+    }
+
+    /**
+     * Interpolate content that was already read from <code>source</code> into <code>target</code>.
+     */
+    boolean interpolate(byte[] content, Path source, Path target) throws IOException, InterpolationException {
+        return interpolate(ByteBuffer.wrap(content), null, isSameFile(source, target), target);
+    }
+
+    /**
+     * @param in the channel the bytes were read from, to copy them from if they need no interpolation, or null
+     */
+    private boolean interpolate(ByteBuffer bytes, FileChannel in, boolean sameFile, Path target)
+            throws IOException, InterpolationException {
+        byte[][] tokens = getTokenBytes();
+        CharBuffer chars = null;
+
+        int start;
+        if (tokens != null) {
+            start = indexOf(bytes, tokens[0], 0);
+        } else {
+            chars = decode(bytes);
+            start = indexOf(chars.array(), chars.limit(), beginToken, 0);
+        }
+
+        if (output == null) {
+            output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+            existing = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+        }
+        output.clear();
+
+        if (start < 0) {
+            if (sameFile) {
+                return false;
+            }
+            // the target can only be unchanged if it has the same size as the source
+            int size = bytes.limit();
+            boolean compare = writeIfChanged && Files.exists(target) && Files.size(target) == size;
+            try (TargetChannel out = new TargetChannel(target, compare, existing)) {
+                if (compare || in == null) {
+                    bytes.position(0);
+                    out.write(bytes);
+                } else {
+                    out.transferFrom(in, size);
+                }
+                return out.finish();
+            }
+        }
+
+        try (TargetChannel out = new TargetChannel(target, writeIfChanged && Files.exists(target), existing)) {
+            if (tokens != null) {
+                write(bytes, tokens, start, out);
+            } else {
+                write(chars.array(), chars.limit(), start, out);
+            }
+            return out.finish();
+        }
+    }
+
+    private byte[][] getTokenBytes() {
+        if (tokenBytes == null
+                && byteLevelScan
+                && ASCII_COMPATIBLE_CHARSETS.contains(charset)
+                && isAscii(beginToken)
+                && isAscii(endToken)
+                && (escapeString == null || isAscii(escapeString))) {
+            tokenBytes = new byte[][] {
+                beginToken.getBytes(StandardCharsets.US_ASCII),
+                endToken.getBytes(StandardCharsets.US_ASCII),
+                escapeString == null ? new byte[0] : escapeString.getBytes(StandardCharsets.US_ASCII)
+            };
+        }
+        return tokenBytes;
+    }
+
+    private static boolean isAscii(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer read(FileChannel in, int size, boolean map) throws IOException {
+        if (map && size >= MAP_THRESHOLD) {
+            return in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (input == null || input.capacity() < size) {
+            input = ByteBuffer.allocate(Math.max(size, 8192));
+        }
+        input.clear().limit(size);
+        while (input.hasRemaining()) {
+            if (in.read(input) < 0) {
+                break;
+            }
+        }
+        input.flip();
+        return input;
+    }
+
+    private CharBuffer decode(ByteBuffer bytes) throws IOException {
+        if (decoder == null) {
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        long capacity = (long) (bytes.remaining() * (double) decoder.maxCharsPerByte()) + 1;
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IOException("File too large to interpolate");
+        }
+        if (content == null || content.capacity() < capacity) {
+            content = CharBuffer.allocate(Math.max((int) capacity, 8192));
+        }
+        content.clear();
+
+        decoder.reset();
+        CoderResult result = decoder.decode(bytes, content, true);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        result = decoder.flush(content);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        content.flip();
+        return content;
+    }
+
+    private void write(char[] text, int length, int start, TargetChannel out)
+            throws IOException, InterpolationException {
+        if (encoder == null) {
+            encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        encoder.reset();
+
+        RecursionInterceptor recursionInterceptor = new SimpleRecursionInterceptor();
+        int literalStart = 0;
+        while (start >= 0) {
+            int end = indexOf(text, length, endToken, start + 1);
+            if (end < 0) {
+                break;
+            }
+            end += endToken.length();
+
+            if (escapeString != null
+                    && escapeString.length() > 0
+                    && start >= escapeString.length()
+                    && regionMatches(text, start - escapeString.length(), escapeString)) {
+                encode(CharBuffer.wrap(text, literalStart, start - escapeString.length() - literalStart), out);
+                encode(CharBuffer.wrap(text, start, end - start), out);
+            } else {
+                encode(CharBuffer.wrap(text, literalStart, start - literalStart), out);
+                encode(CharBuffer.wrap(resolve(new String(text, start, end - start), recursionInterceptor)), out);
+            }
+
+            literalStart = end;
+            start = indexOf(text, length, beginToken, end);
+        }
+        encode(CharBuffer.wrap(text, literalStart, length - literalStart), out);
+
+        CoderResult result = encoder.encode(CharBuffer.allocate(0), output, true);
+        while (result.isOverflow()) {
+            drain(out);
+            result = encoder.encode(CharBuffer.allocate(0), output, true);
+        }
+        while (encoder.flush(output).isOverflow()) {
+            drain(out);
+        }
+        drain(out);
+    }
+
+    private void write(ByteBuffer bytes, byte[][] tokens, int start, TargetChannel out)
+            throws IOException, InterpolationException {
+        byte[] begin = tokens[0];
+        byte[] end = tokens[1];
+        byte[] escape = tokens[2];
+
+        RecursionInterceptor recursionInterceptor = new SimpleRecursionInterceptor();
+        int literalStart = 0;
+        while (start >= 0) {
+            int endIdx = indexOf(bytes, end, start + 1);
+            if (endIdx < 0) {
+                break;
+            }
+            endIdx += end.length;
+
+            if (escape.length > 0 && start >= escape.length && regionMatches(bytes, start - escape.length, escape)) {
+                put(slice(bytes, literalStart, start - escape.length), out);
+                put(slice(bytes, start, endIdx), out);
+            } else {
+                put(slice(bytes, literalStart, start), out);
+                String expression = decode(bytes, start, endIdx);
+                put(ByteBuffer.wrap(resolve(expression, recursionInterceptor).getBytes(charset)), out);
+            }
+
+            literalStart = endIdx;
+            start = indexOf(bytes, begin, endIdx);
+        }
+        put(slice(bytes, literalStart, bytes.limit()), out);
+        drain(out);
+    }
+
+    private String decode(ByteBuffer bytes, int from, int to) {
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + from, to - from, charset);
+        }
+        byte[] expression = new byte[to - from];
+        slice(bytes, from, to).get(expression);
+        return new String(expression, charset);
+    }
+
+    private static ByteBuffer slice(ByteBuffer bytes, int from, int to) {
+        ByteBuffer slice = bytes.duplicate();
+        slice.limit(to).position(from);
+        return slice;
+    }
+
+    /**
+     * Buffer small spans of output, and write large ones directly.
+     */
+    private void put(ByteBuffer bytes, TargetChannel out) throws IOException {
+        if (bytes.remaining() > output.remaining()) {
+            drain(out);
+            if (bytes.remaining() >= output.capacity()) {
+                out.write(bytes);
+                return;
+            }
+        }
+        output.put(bytes);
+    }
+
+    /**
+     * @return the value of a single expression, given without its tokens
+     */
+    String resolve(String expression) throws InterpolationException {
+        return resolve(beginToken + expression + endToken, new SimpleRecursionInterceptor());
+    }
+
+    private String resolve(String expression, RecursionInterceptor recursionInterceptor)
+            throws InterpolationException {
+        if (interpolator instanceof Interpolator) {
+            return ((Interpolator) interpolator).resolveExpression(expression, recursionInterceptor);
+        }
+        return interpolator.interpolate(expression, recursionInterceptor);
+    }
+
+    private void encode(CharBuffer chars, TargetChannel out) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, output, false);
+            if (result.isOverflow()) {
+                drain(out);
+            } else if (result.isUnderflow()) {
+                return;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    private void drain(TargetChannel out) throws IOException {
+        output.flip();
+        out.write(output);
+        output.clear();
+    }
+
+    private static boolean isSameFile(Path source, Path target) throws IOException {
+        return Files.exists(target) && Files.isSameFile(source, target);
+    }
+
+    private static int indexOf(char[] text, int length, String token, int from) {
+        char first = token.charAt(0);
+        int last = length - token.length();
+        for (int i = from; i <= last; i++) {
+            if (text[i] == first && regionMatches(text, i, token)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(char[] text, int offset, String token) {
+        for (int i = 1; i < token.length(); i++) {
+            if (text[offset + i] != token.charAt(i)) {
+                return false;
+            }
+        }
+        return text[offset] == token.charAt(0);
+    }
+
+    private static int indexOf(ByteBuffer bytes, byte[] token, int from) {
+        byte first = token[0];
+        int last = bytes.limit() - token.length;
+        if (bytes.hasArray()) {
+            byte[] array = bytes.array();
+            int offset = bytes.arrayOffset();
+            for (int i = from; i <= last; i++) {
+                if (array[offset + i] == first && regionMatches(bytes, i, token)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        for (int i = from; i <= last; i++) {
+            if (bytes.get(i) == first && regionMatches(bytes, i, token)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(ByteBuffer bytes, int offset, byte[] token) {
+        for (int i = 0; i < token.length; i++) {
+            if (bytes.get(offset + i) != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getEscapeString() {
+        return escapeString;
+    }
+
+    /**
+     * @param escapeString the string that, directly in front of a begin token, keeps the expression from being
+     *                     interpolated; the escape string itself is dropped from the output
+     */
+    public void setEscapeString(String escapeString) {
+        this.escapeString = escapeString;
+        this.tokenBytes = null;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @param charset the encoding of both source and target files, UTF-8 by default
+     */
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+        this.decoder = null;
+        this.encoder = null;
+        this.tokenBytes = null;
+    }
+
+    public boolean isWriteIfChanged() {
+        return writeIfChanged;
+    }
+
+    /**
+     * @param writeIfChanged whether to compare the output with the existing target while it is produced, and leave
+     *                       the target untouched when they are the same; false by default
+     */
+    public void setWriteIfChanged(boolean writeIfChanged) {
+        this.writeIfChanged = writeIfChanged;
+    }
+
+    public boolean isByteLevelScan() {
+        return byteLevelScan;
+    }
+
+    /**
+     * @param byteLevelScan whether files in an ASCII compatible charset are filtered without decoding them, true by
+     *                      default
+     */
+    public void setByteLevelScan(boolean byteLevelScan) {
+        this.byteLevelScan = byteLevelScan;
+        this.tokenBytes = null;
+    }
+}
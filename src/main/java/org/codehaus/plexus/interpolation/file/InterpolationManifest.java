@@ -0,0 +1,207 @@
+package org.codehaus.plexus.interpolation.file;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers, for every file of a {@link DirectoryInterpolator} run, what its target was produced from: a hash of the
+ * source content, the expressions the source references, and a hash of the values those expressions resolved to.
+ * When none of these changed and the target is still there, the file does not need to be interpolated again.
+ * <p>
+ * The manifest is stored in a local file. Only the entries of the files seen in the last run are kept, and a manifest
+ * written with other settings, such as other tokens or another target directory, is ignored. So is a manifest that
+ * cannot be read, for instance because a previous run was interrupted while writing it: it only means that all files
+ * are interpolated again.</p>
+ */
+final class InterpolationManifest {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path file;
+
+    private final String settings;
+
+    private final Map<String, Entry> previous;
+
+    private final Map<String, Entry> current = new ConcurrentHashMap<String, Entry>();
+
+    private InterpolationManifest(Path file, String settings, Map<String, Entry> previous) {
+        this.file = file;
+        this.settings = settings;
+        this.previous = previous;
+    }
+
+    /**
+     * @param file where the manifest is stored; it does not need to exist
+     * @param settings describes everything besides the values that determines the output, such as the tokens
+     */
+    static InterpolationManifest load(Path file, String settings) {
+        Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long size = Files.size(file);
+            if (in.readInt() == FORMAT_VERSION && readString(in, size).equals(settings)) {
+                int count = readCount(in, size);
+                for (int i = 0; i < count; i++) {
+                    String path = readString(in, size);
+                    String sourceHash = readString(in, size);
+                    long targetSize = in.readLong();
+                    int expressionCount = readCount(in, size);
+                    List<String> expressions = new ArrayList<String>(expressionCount);
+                    for (int j = 0; j < expressionCount; j++) {
+                        expressions.add(readString(in, size));
+                    }
+                    String valuesHash = readString(in, size);
+                    entries.put(path, new Entry(sourceHash, targetSize, expressions, valuesHash));
+                }
+            }
+        } catch (IOException e) {
+            // first run, or a manifest that is truncated or corrupt: start over rather than fail the build
+            entries.clear();
+        }
+        return new InterpolationManifest(file, settings, entries);
+    }
+
+    /**
+     * @param size the size of the manifest, which no count or length read from it can exceed
+     */
+    private static int readCount(DataInputStream in, long size) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > size) {
+            throw new IOException("Corrupt manifest");
+        }
+        return count;
+    }
+
+    private static String readString(DataInputStream in, long size) throws IOException {
+        byte[] bytes = new byte[readCount(in, size)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return the entry recorded for the file by the previous run, or null
+     */
+    Entry getPrevious(String path) {
+        return previous.get(path);
+    }
+
+    void put(String path, Entry entry) {
+        current.put(path, entry);
+    }
+
+    /**
+     * Replace the stored manifest with the entries of this run.
+     */
+    void store() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, settings);
+            out.writeInt(current.size());
+            for (Map.Entry<String, Entry> mapEntry : current.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                writeString(out, mapEntry.getKey());
+                writeString(out, entry.sourceHash);
+                out.writeLong(entry.targetSize);
+                out.writeInt(entry.expressions.size());
+                for (String expression : entry.expressions) {
+                    writeString(out, expression);
+                }
+                writeString(out, entry.valuesHash);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static String hash(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    /**
+     * @param values the values of the expressions, in the same order
+     */
+    static String hash(List<String> expressions, List<String> values) {
+        MessageDigest digest = newDigest();
+        for (int i = 0; i < expressions.size(); i++) {
+            digest.update(expressions.get(i).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(values.get(i).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    static final class Entry {
+
+        final String sourceHash;
+
+        final long targetSize;
+
+        final List<String> expressions;
+
+        final String valuesHash;
+
+        Entry(String sourceHash, long targetSize, List<String> expressions, String valuesHash) {
+            this.sourceHash = sourceHash;
+            this.targetSize = targetSize;
+            this.expressions = Collections.unmodifiableList(expressions);
+            this.valuesHash = valuesHash;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.codehaus.plexus.interpolation.file;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * Writes the output for a target file. When asked to compare, the output is first checked against the content the
+ * target already has, and nothing is written until the first byte that differs; a target that ends up identical is
+ * never written to, so it keeps its modification time.
+ * <p>
+ * A target that differs is not rewritten in place: the matching part is copied to a temporary file next to it, the
+ * rest of the output is written there, and {@link #finish()} moves it over the target. If the output cannot be
+ * completed, the target keeps its previous content instead of a mix of old and new.</p>
+ */
+final class TargetChannel implements Closeable {
+
+    private final Path target;
+
+    /** the target, for reading when comparing, for writing otherwise */
+    private final FileChannel channel;
+
+    private final ByteBuffer existing;
+
+    /** where the output is written to: the target itself, or a temporary file once the compared output differs */
+    private FileChannel out;
+
+    private Path temp;
+
+    private long position;
+
+    private boolean changed;
+
+    /**
+     * @param target the file to write
+     * @param compare whether to compare with the existing content of the target, which must exist
+     * @param existing a buffer to read the existing content into
+     */
+    TargetChannel(Path target, boolean compare, ByteBuffer existing) throws IOException {
+        this.target = target;
+        if (compare) {
+            channel = FileChannel.open(target, StandardOpenOption.READ);
+        } else {
+            channel = FileChannel.open(
+                    target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            out = channel;
+            changed = true;
+        }
+        this.existing = existing;
+    }
+
+    void write(ByteBuffer bytes) throws IOException {
+        if (!changed) {
+            skipUnchanged(bytes);
+        }
+        if (bytes.hasRemaining()) {
+            diverge();
+        }
+        while (bytes.hasRemaining()) {
+            position += out.write(bytes, position);
+        }
+    }
+
+    /**
+     * Consume the bytes that match the existing content.
+     */
+    private void skipUnchanged(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            existing.clear();
+            existing.limit(Math.min(existing.capacity(), bytes.remaining()));
+            if (channel.read(existing, position) <= 0) {
+                changed = true;
+                return;
+            }
+            existing.flip();
+            while (existing.hasRemaining()) {
+                if (existing.get() != bytes.get(bytes.position())) {
+                    changed = true;
+                    return;
+                }
+                bytes.position(bytes.position() + 1);
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Start writing to a temporary file, beginning with the part of the target that matched the output.
+     */
+    private void diverge() throws IOException {
+        changed = true;
+        if (out != null) {
+            return;
+        }
+
+        Path dir = target.toAbsolutePath().getParent();
+        temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        PosixFileAttributeView attributes = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (attributes != null) {
+            Files.setPosixFilePermissions(temp, attributes.readAttributes().permissions());
+        }
+        out = FileChannel.open(temp, StandardOpenOption.WRITE);
+        transfer(channel, out, position);
+    }
+
+    void transferFrom(FileChannel in, long size) throws IOException {
+        diverge();
+        transfer(in, out, size);
+    }
+
+    private void transfer(FileChannel in, FileChannel out, long size) throws IOException {
+        position = 0;
+        while (position < size) {
+            long transferred = in.transferTo(position, size - position, out);
+            if (transferred <= 0) {
+                // nothing left to read at this position: the file shrank since its size was taken
+                throw new IOException("File changed while copying: expected " + size + " bytes, found "
+                        + in.size());
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Cut off what is left of the previous content, or move the new content over it.
+     *
+     * @return whether the target was written to
+     */
+    boolean finish() throws IOException {
+        if (!changed && channel.size() == position) {
+            return false;
+        }
+        diverge();
+        out.truncate(position);
+        if (temp != null) {
+            out.close();
+            channel.close();
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        }
+        return true;
+    }
+
+    public void close() throws IOException {
+        try {
+            channel.close();
+            if (out != null) {
+                out.close();
+            }
+        } finally {
+            if (temp != null) {
+                // the output was not finished, leave the target as it was
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.codehaus.plexus.interpolation.fixed;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.interpolation.util.SingleFlight;
+
+/**
+ * Wraps a fixed value source that is expensive to ask and shared by interpolations running in several threads at
+ * once. Concurrent lookups of the same expression share a single call to the wrapped value source, made with the
+ * {@link InterpolationState} of the first caller, and the value found may be remembered for a while.
+ * <p>
+ * The threads sharing a call get what it returns or throws under the recursion interceptor, limits and deadline of
+ * the first caller. Lookups the wrapped value source makes itself while such a call is in progress, for example when
+ * it interpolates the values it finds, are not shared: they go straight to the wrapped value source, so a call never
+ * waits for another one that may be waiting for it, and cyclic definitions fail with an
+ * {@link InterpolationCycleException} as they do without this wrapper.</p>
+ *
+ * @see org.codehaus.plexus.interpolation.CoalescingValueSource
+ * @since 1.30
+ */
+public class CoalescingValueSource implements FixedValueSource {
+
+    private final FixedValueSource delegate;
+
+    private final SingleFlight<String, Object> values;
+
+    /**
+     * Share lookups that are in progress, but do not remember their values.
+     *
+     * @param delegate The value source to wrap
+     */
+    public CoalescingValueSource(FixedValueSource delegate) {
+        this(delegate, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param delegate The value source to wrap
+     * @param ttl      how long to remember the value of an expression, not found included; 0 not to remember values
+     * @param unit     the unit of ttl
+     */
+    public CoalescingValueSource(FixedValueSource delegate, long ttl, TimeUnit unit) {
+        if (delegate == null) {
+            throw new NullPointerException("Delegate FixedValueSource cannot be null.");
+        }
+        this.delegate = delegate;
+        this.values = new SingleFlight<String, Object>(ttl, unit);
+    }
+
+    public Object getValue(String expression, final InterpolationState interpolationState) {
+        if (interpolationState.coalescedLookups > 0) {
+            // nested in a shared lookup: waiting for another one here could wait for a lookup waiting for this one
+            return delegate.getValue(expression, interpolationState);
+        }
+
+        return values.get(expression, key -> {
+            interpolationState.coalescedLookups++;
+            try {
+                return delegate.getValue(key, interpolationState);
+            } finally {
+                interpolationState.coalescedLookups--;
+            }
+        });
+    }
+
+    /**
+     * Forget all remembered values, so they are looked up again.
+     */
+    public void clear() {
+        values.clear();
+    }
+}
@@ -56,15 +56,32 @@ public class FixedStringSearchInterpolator implements FixedValueSource {
 
     private final String escapeString;
 
+    private final int maxOutputLength;
+
+    private final int maxLookups;
+
     private FixedStringSearchInterpolator(
             String startExpr,
             String endExpr,
             String escapeString,
             InterpolationPostProcessor postProcessor,
             FixedValueSource... valueSources) {
+        this(startExpr, endExpr, escapeString, postProcessor, -1, -1, valueSources);
+    }
+
+    private FixedStringSearchInterpolator(
+            String startExpr,
+            String endExpr,
+            String escapeString,
+            InterpolationPostProcessor postProcessor,
+            int maxOutputLength,
+            int maxLookups,
+            FixedValueSource... valueSources) {
         this.startExpr = startExpr;
         this.endExpr = endExpr;
         this.escapeString = escapeString;
+        this.maxOutputLength = maxOutputLength;
+        this.maxLookups = maxLookups;
         if (valueSources == null) {
             throw new IllegalArgumentException("valueSources cannot be null");
         }
@@ -101,15 +118,46 @@ public class FixedStringSearchInterpolator implements FixedValueSource {
     }
 
     public FixedStringSearchInterpolator withExpressionMarkers(String startExpr, String endExpr) {
-        return new FixedStringSearchInterpolator(startExpr, endExpr, escapeString, postProcessor, valueSources);
+        return new FixedStringSearchInterpolator(
+                startExpr, endExpr, escapeString, postProcessor, maxOutputLength, maxLookups, valueSources);
     }
 
     public FixedStringSearchInterpolator withPostProcessor(InterpolationPostProcessor postProcessor) {
-        return new FixedStringSearchInterpolator(startExpr, endExpr, escapeString, postProcessor, valueSources);
+        return new FixedStringSearchInterpolator(
+                startExpr, endExpr, escapeString, postProcessor, maxOutputLength, maxLookups, valueSources);
     }
 
     public FixedStringSearchInterpolator withEscapeString(String escapeString) {
-        return new FixedStringSearchInterpolator(startExpr, endExpr, escapeString, postProcessor, valueSources);
+        return new FixedStringSearchInterpolator(
+                startExpr, endExpr, escapeString, postProcessor, maxOutputLength, maxLookups, valueSources);
+    }
+
+    /**
+     * Limit the length of the output of a single interpolate(..) call. Expressions are expanded into that output, so
+     * the characters produced at all nesting levels, literal text included, count towards the same limit, which is
+     * checked as the output grows. Exceeding it fails the call with an
+     * {@link ExpansionLimitExceededException}.
+     *
+     * @param maxOutputLength The maximum number of characters, or -1 (the default) for no limit.
+     * @return a new interpolator with the given limit.
+     * @since 1.30
+     */
+    public FixedStringSearchInterpolator withMaxOutputLength(int maxOutputLength) {
+        return new FixedStringSearchInterpolator(
+                startExpr, endExpr, escapeString, postProcessor, maxOutputLength, maxLookups, valueSources);
+    }
+
+    /**
+     * Limit the number of expressions, nested ones included, a single interpolate(..) call may resolve. Exceeding
+     * it fails the call with an {@link ExpansionLimitExceededException}.
+     *
+     * @param maxLookups The maximum number of expression lookups, or -1 (the default) for no limit.
+     * @return a new interpolator with the given limit.
+     * @since 1.30
+     */
+    public FixedStringSearchInterpolator withMaxLookups(int maxLookups) {
+        return new FixedStringSearchInterpolator(
+                startExpr, endExpr, escapeString, postProcessor, maxOutputLength, maxLookups, valueSources);
     }
 
     public String interpolate(String input) throws InterpolationCycleException {
@@ -174,10 +222,16 @@ public class FixedStringSearchInterpolator implements FixedValueSource {
             // return empty String to prevent NPE too
             return "";
         }
+        if (interpolationState.expressionPath.isEmpty()) {
+            // not nested in the resolution of another expression, so this is a new call
+            interpolationState.lookups = 0;
+            interpolationState.output = 0;
+        }
         StringBuilder result = new StringBuilder(input.length() * 2);
 
         int startIdx;
         int endIdx = -1;
+        String wholeExpr = null;
         while ((startIdx = input.indexOf(startExpr, endIdx + 1)) > -1) {
             result.append(input, endIdx + 1, startIdx);
 
@@ -186,7 +240,7 @@ public class FixedStringSearchInterpolator implements FixedValueSource {
                 break;
             }
 
-            final String wholeExpr = input.substring(startIdx, endIdx + endExpr.length());
+            wholeExpr = input.substring(startIdx, endIdx + endExpr.length());
             String realExpr = wholeExpr.substring(startExpr.length(), wholeExpr.length() - endExpr.length());
 
             if (startIdx >= 0 && escapeString != null && escapeString.length() > 0) {
@@ -196,6 +250,7 @@ public class FixedStringSearchInterpolator implements FixedValueSource {
                     if (escapeString.equals(escape)) {
                         result.append(wholeExpr);
                         result.replace(startEscapeIdx, startEscapeIdx + escapeString.length(), "");
+                        checkOutputLength(result.length(), wholeExpr, interpolationState);
                         continue;
                     }
                 }
@@ -211,26 +266,56 @@ public class FixedStringSearchInterpolator implements FixedValueSource {
                     throw new InterpolationCycleException(interpolationState.recursionInterceptor, realExpr, wholeExpr);
                 }
 
-                Object value = getValue(realExpr, interpolationState);
-                if (value != null) {
-                    value = interpolate(String.valueOf(value), interpolationState);
+                List<String> path = interpolationState.expressionPath;
+                path.add(realExpr);
+                try {
+                    if (maxLookups >= 0 && ++interpolationState.lookups > maxLookups) {
+                        throw new ExpansionLimitExceededException(
+                                "More than " + maxLookups + " expression lookups", wholeExpr, path);
+                    }
+                    if (interpolationState.deadline != null) {
+                        String reason = interpolationState.deadline.getExpiredReason();
+                        if (reason != null) {
+                            throw new InterpolationCancelledException(reason, wholeExpr, path);
+                        }
+                    }
 
-                    if (postProcessor != null) {
-                        Object newVal = postProcessor.execute(realExpr, value);
-                        if (newVal != null) {
-                            value = newVal;
+                    // the output of the enclosing expansions counts towards the limit as well, also while the
+                    // value sources interpolate the values they return
+                    Object value;
+                    long output = interpolationState.output;
+                    interpolationState.output += result.length();
+                    try {
+                        value = getValue(realExpr, interpolationState);
+                        if (value != null) {
+                            value = interpolate(String.valueOf(value), interpolationState);
                         }
+                    } finally {
+                        interpolationState.output = output;
                     }
+                    if (value != null) {
+
+                        if (postProcessor != null) {
+                            Object newVal = postProcessor.execute(realExpr, value);
+                            if (newVal != null) {
+                                value = newVal;
+                            }
+                        }
 
-                    result.append(String.valueOf(value));
-                    resolved = true;
-                } else {
-                    interpolationState.unresolvable.add(wholeExpr);
+                        result.append(String.valueOf(value));
+                        checkOutputLength(result.length(), wholeExpr, interpolationState);
+                        resolved = true;
+                    } else {
+                        interpolationState.unresolvable.add(wholeExpr);
+                    }
+                } finally {
+                    path.remove(path.size() - 1);
                 }
             }
 
             if (!resolved) {
                 result.append(wholeExpr);
+                checkOutputLength(result.length(), wholeExpr, interpolationState);
             }
 
             if (endIdx > -1) {
@@ -243,7 +328,21 @@ public class FixedStringSearchInterpolator implements FixedValueSource {
         } else if (endIdx < input.length()) {
             result.append(input, endIdx + 1, input.length());
         }
+        checkOutputLength(result.length(), wholeExpr, interpolationState);
 
         return result.toString();
     }
+
+    /**
+     * Checks the output of the whole call: the given length, produced at the current level of expansion, and what
+     * the enclosing expansions produced so far.
+     */
+    private void checkOutputLength(int length, String expression, InterpolationState interpolationState) {
+        if (maxOutputLength >= 0 && interpolationState.output + length > maxOutputLength) {
+            throw new ExpansionLimitExceededException(
+                    "Output exceeds " + maxOutputLength + " characters",
+                    expression,
+                    interpolationState.expressionPath);
+        }
+    }
 }
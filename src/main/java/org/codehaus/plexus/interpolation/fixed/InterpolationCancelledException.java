@@ -0,0 +1,62 @@
+package org.codehaus.plexus.interpolation.fixed;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Signals that interpolating a string was abandoned because the
+ * {@link org.codehaus.plexus.interpolation.InterpolationDeadline} of its {@link InterpolationState} expired.
+ *
+ * @since 1.30
+ */
+public class InterpolationCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String expression;
+
+    private final List<String> expressionPath;
+
+    /**
+     * @param message Why the interpolation was abandoned
+     * @param expression The expression being resolved at that point
+     * @param expressionPath The nested expressions being resolved at that point, outermost first
+     */
+    public InterpolationCancelledException(String message, String expression, List<String> expressionPath) {
+        super("Resolving expression: '" + expression + "': " + message + " (expression path: " + expressionPath
+                + ")");
+        this.expression = expression;
+        this.expressionPath = Collections.unmodifiableList(new ArrayList<String>(expressionPath));
+    }
+
+    /**
+     * @return The expression being resolved when the interpolation was abandoned.
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return The nested expressions being resolved when the interpolation was abandoned, outermost first.
+     */
+    public List<String> getExpressionPath() {
+        return expressionPath;
+    }
+}
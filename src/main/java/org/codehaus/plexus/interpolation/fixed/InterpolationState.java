@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.codehaus.plexus.interpolation.InterpolationDeadline;
 import org.codehaus.plexus.interpolation.RecursionInterceptor;
 import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
 
@@ -52,16 +53,41 @@ public class InterpolationState {
         messages.clear();
         causes.clear();
         unresolvable.clear();
+        expressionPath.clear();
+        lookups = 0;
+        output = 0;
         recursionInterceptor.clear();
         root = null;
     }
 
     final Set<String> unresolvable = new HashSet<String>();
+
+    // expressions being resolved, outermost first, and the number resolved so far in the current call
+    final List<String> expressionPath = new ArrayList<String>();
+    int lookups;
+
+    // output of the enclosing expansions, which the current one is going to be part of
+    long output;
+
+    // lookups shared by a CoalescingValueSource that are in progress with this state
+    int coalescedLookups;
+
     RecursionInterceptor recursionInterceptor = new SimpleRecursionInterceptor();
 
     public void setRecursionInterceptor(RecursionInterceptor recursionInterceptor) {
         this.recursionInterceptor = recursionInterceptor;
     }
 
+    InterpolationDeadline deadline;
+
+    /**
+     * @param deadline when interpolations with this state give up with an {@link InterpolationCancelledException};
+     *                 checked before every expression lookup. Null (the default) to never give up.
+     * @since 1.30
+     */
+    public void setDeadline(InterpolationDeadline deadline) {
+        this.deadline = deadline;
+    }
+
     FixedStringSearchInterpolator root = null;
 }
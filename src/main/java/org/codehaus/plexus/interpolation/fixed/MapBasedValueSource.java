@@ -16,13 +16,16 @@ package org.codehaus.plexus.interpolation.fixed;
  * limitations under the License.
  */
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.codehaus.plexus.interpolation.EnumerableValueSource;
+
 /**
  * Wraps a Map, and looks up the whole expression as a single key, returning the
  * value mapped to it.
  */
-public class MapBasedValueSource implements FixedValueSource {
+public class MapBasedValueSource implements FixedValueSource, EnumerableValueSource {
 
     private final Map values;
 
@@ -41,4 +44,21 @@ public class MapBasedValueSource implements FixedValueSource {
     public Object getValue(String expression, InterpolationState interpolationState) {
         return values == null ? null : values.get(expression);
     }
+
+    /**
+     * {@inheritDoc}
+     * @since 1.30
+     */
+    public Map<String, Object> getEntries() {
+        Map<String, Object> entries = new LinkedHashMap<String, Object>();
+        if (values != null) {
+            for (Object o : values.entrySet()) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                if (entry.getKey() instanceof String && entry.getValue() != null) {
+                    entries.put((String) entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return entries;
+    }
 }
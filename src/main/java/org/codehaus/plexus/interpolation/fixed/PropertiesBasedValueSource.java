@@ -16,8 +16,12 @@ package org.codehaus.plexus.interpolation.fixed;
  * limitations under the License.
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
+import org.codehaus.plexus.interpolation.EnumerableValueSource;
+
 /**
  * {@link org.codehaus.plexus.interpolation.fixed.FixedValueSource} implementation that wraps a {@link java.util.Properties} instance,
  * and does a simple lookup of the entire expression string as the parameter for
@@ -26,7 +30,7 @@ import java.util.Properties;
  *
  * @author jdcasey
  */
-public class PropertiesBasedValueSource implements FixedValueSource {
+public class PropertiesBasedValueSource implements FixedValueSource, EnumerableValueSource {
 
     private final Properties properties;
 
@@ -48,4 +52,18 @@ public class PropertiesBasedValueSource implements FixedValueSource {
     public Object getValue(String expression, InterpolationState interpolationState) {
         return properties == null ? null : properties.getProperty(expression);
     }
+
+    /**
+     * {@inheritDoc}
+     * @since 1.30
+     */
+    public Map<String, Object> getEntries() {
+        Map<String, Object> entries = new LinkedHashMap<String, Object>();
+        if (properties != null) {
+            for (String name : properties.stringPropertyNames()) {
+                entries.put(name, properties.getProperty(name));
+            }
+        }
+        return entries;
+    }
 }
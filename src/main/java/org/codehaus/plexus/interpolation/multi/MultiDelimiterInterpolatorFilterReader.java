@@ -63,6 +63,7 @@ import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.Interpolator;
 import org.codehaus.plexus.interpolation.RecursionInterceptor;
 import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
+import org.codehaus.plexus.interpolation.StringSearchInterpolator;
 
 /**
  * A FilterReader implementation, that works with Interpolator interface instead of it's own interpolation
@@ -115,6 +116,24 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
 
     private String endToken;
 
+    /** maximum number of characters buffered while looking for an end token, -1 for no limit */
+    private int maxExpressionLength = -1;
+
+    /** Characters read ahead from the underlying reader */
+    private final char[] buffer = new char[8192];
+
+    /** Index of the next unconsumed character in the buffer */
+    private int bufferPos;
+
+    /** Number of valid characters in the buffer */
+    private int bufferLimit;
+
+    /** ASCII characters that may start a token or escape, null until compiled from the delimiters */
+    private boolean[] asciiTriggers;
+
+    /** Non-ASCII characters that may start a token or escape */
+    private String otherTriggers;
+
     /**
      * this constructor use default begin token ${ and default end token }
      * @param in reader to use
@@ -148,6 +167,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
             return this;
         }
         delimiters.add(DelimiterSpecification.parse(delimiterSpec));
+        asciiTriggers = null;
         return this;
     }
 
@@ -155,6 +175,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
         if (delimiterSpec == null) {
             return false;
         }
+        asciiTriggers = null;
         return delimiters.remove(DelimiterSpecification.parse(delimiterSpec));
     }
 
@@ -166,6 +187,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
             }
             delimiters.add(DelimiterSpecification.parse(spec));
         }
+        asciiTriggers = null;
 
         return this;
     }
@@ -184,12 +206,16 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
             throw new IllegalArgumentException("skip value is negative");
         }
 
-        for (long i = 0; i < n; i++) {
-            if (read() == -1) {
-                return i;
+        char[] skipped = new char[(int) Math.min(n, buffer.length)];
+        long remaining = n;
+        while (remaining > 0) {
+            int count = read(skipped, 0, (int) Math.min(remaining, skipped.length));
+            if (count == -1) {
+                break;
             }
+            remaining -= count;
         }
-        return n;
+        return n - remaining;
     }
 
     /**
@@ -203,18 +229,90 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
      * @exception IOException If an I/O error occurs
      */
     public int read(char cbuf[], int off, int len) throws IOException {
-        for (int i = 0; i < len; i++) {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (asciiTriggers == null) {
+            compileTriggers();
+        }
+
+        int count = 0;
+        while (count < len) {
+            // pending replacement text is copied as a whole
+            if (replaceIndex != -1 && replaceIndex < replaceData.length()) {
+                int n = Math.min(len - count, replaceData.length() - replaceIndex);
+                replaceData.getChars(replaceIndex, replaceIndex + n, cbuf, off + count);
+                replaceIndex += n;
+                if (replaceIndex >= replaceData.length()) {
+                    replaceIndex = -1;
+                }
+                count += n;
+                continue;
+            }
+
+            // as are literal runs up to the next character that may start a token or escape
+            if (!(previousIndex != -1 && previousIndex < this.endToken.length())) {
+                if (bufferPos == bufferLimit && !fillBuffer()) {
+                    break;
+                }
+
+                int end = Math.min(bufferLimit, bufferPos + len - count);
+                int pos = bufferPos;
+                while (pos < end && !isTrigger(buffer[pos])) {
+                    pos++;
+                }
+
+                if (pos > bufferPos) {
+                    System.arraycopy(buffer, bufferPos, cbuf, off + count, pos - bufferPos);
+                    count += pos - bufferPos;
+                    bufferPos = pos;
+                    continue;
+                }
+            }
+
+            // everything else goes through the token state machine
             int ch = read();
             if (ch == -1) {
-                if (i == 0) {
-                    return -1;
-                } else {
-                    return i;
-                }
+                break;
             }
-            cbuf[off + i] = (char) ch;
+            cbuf[off + count++] = (char) ch;
         }
-        return len;
+
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Compile the first characters of all begin tokens, and of the escape string, into a lookup table, so literal
+     * text can be scanned without consulting each delimiter for each character.
+     */
+    private void compileTriggers() {
+        boolean[] ascii = new boolean[128];
+        StringBuilder other = new StringBuilder();
+
+        StringBuilder firstChars = new StringBuilder();
+        if (useEscape) {
+            firstChars.append(escapeString.charAt(0));
+        }
+        for (DelimiterSpecification spec : delimiters) {
+            firstChars.append(spec.getBegin().charAt(0));
+        }
+
+        for (int i = 0; i < firstChars.length(); i++) {
+            char c = firstChars.charAt(i);
+            if (c < 128) {
+                ascii[c] = true;
+            } else {
+                other.append(c);
+            }
+        }
+
+        otherTriggers = other.toString();
+        asciiTriggers = ascii;
+    }
+
+    private boolean isTrigger(char c) {
+        return c < 128 ? asciiTriggers[c] : otherTriggers.indexOf(c) >= 0;
     }
 
     /**
@@ -236,7 +334,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
         if (previousIndex != -1 && previousIndex < this.endToken.length()) {
             ch = this.endToken.charAt(previousIndex++);
         } else {
-            ch = in.read();
+            ch = nextChar();
         }
 
         boolean inEscape = false;
@@ -251,7 +349,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
 
             if (inEscape) {
                 for (int i = 0; i < escapeString.length() - 1; i++) {
-                    ch = in.read();
+                    ch = nextChar();
                     if (ch == -1) {
                         atEnd = true;
                         break;
@@ -261,7 +359,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
                 }
 
                 if (!atEnd) {
-                    ch = in.read();
+                    ch = nextChar();
                     if (!reselectDelimiterSpec(ch)) {
                         replaceData = key.toString();
                         replaceIndex = 1;
@@ -282,7 +380,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
                 if (previousIndex != -1 && previousIndex < this.endToken.length()) {
                     ch = this.endToken.charAt(previousIndex++);
                 } else {
-                    ch = in.read();
+                    ch = nextChar();
                 }
                 if (ch != -1) {
                     key.append((char) ch);
@@ -296,6 +394,10 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
                 }
 
                 beginTokenMatchPos++;
+                if (maxExpressionLength >= 0 && key.length() > maxExpressionLength) {
+                    ch = -1; // give up on this candidate and let the buffered text pass through
+                    break;
+                }
             } while (ch != this.endToken.charAt(0));
 
             // now test endToken
@@ -306,7 +408,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
                     if (previousIndex != -1 && previousIndex < this.endToken.length()) {
                         ch = this.endToken.charAt(previousIndex++);
                     } else {
-                        ch = in.read();
+                        ch = nextChar();
                     }
 
                     if (ch != -1) {
@@ -347,10 +449,12 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
                     }
                 }
                 if (!escapeFound) {
-                    if (interpolateWithPrefixPattern) {
+                    if (interpolateWithPrefixPattern && !ignoresPrefixPattern(interpolator)) {
                         value = interpolator.interpolate(key.toString(), "", recursionInterceptor);
                     } else {
-                        value = interpolator.interpolate(key.toString(), recursionInterceptor);
+                        // the key is a single whole token, so let the interpolator resolve it directly instead of
+                        // searching it for expressions again
+                        value = interpolator.resolveExpression(key.toString(), recursionInterceptor);
                     }
                 }
             } catch (InterpolationException e) {
@@ -377,6 +481,61 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
         return ch;
     }
 
+    /**
+     * @return the next character from the underlying reader, or -1 at its end
+     */
+    private int nextChar() throws IOException {
+        if (bufferPos == bufferLimit && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPos++];
+    }
+
+    private boolean fillBuffer() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+
+        if (n < 0) {
+            return false;
+        }
+
+        bufferPos = 0;
+        bufferLimit = n;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean ready() throws IOException {
+        return (replaceIndex != -1 && replaceIndex < replaceData.length()) || bufferPos < bufferLimit || in.ready();
+    }
+
+    /**
+     * Mark is not supported, since characters are read ahead from the underlying reader.
+     *
+     * @return false
+     */
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
     private boolean reselectDelimiterSpec(int ch) {
         for (DelimiterSpecification spec : delimiters) {
             if (ch == spec.getBegin().charAt(0)) {
@@ -392,6 +551,15 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
         return false;
     }
 
+    /**
+     * The built-in string search engines ignore the prefix pattern, so for them interpolating with an empty one is
+     * the same as interpolating without one. Subclasses may not, and are left alone.
+     */
+    private static boolean ignoresPrefixPattern(Interpolator interpolator) {
+        return interpolator.getClass() == StringSearchInterpolator.class
+                || interpolator.getClass() == MultiDelimiterStringSearchInterpolator.class;
+    }
+
     public boolean isInterpolateWithPrefixPattern() {
         return interpolateWithPrefixPattern;
     }
@@ -409,6 +577,7 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
         if (escapeString != null && escapeString.length() >= 1) {
             this.escapeString = escapeString;
             this.useEscape = escapeString != null && escapeString.length() >= 1;
+            this.asciiTriggers = null;
         }
     }
 
@@ -420,6 +589,26 @@ public class MultiDelimiterInterpolatorFilterReader extends FilterReader {
         this.preserveEscapeString = preserveEscapeString;
     }
 
+    /**
+     * @return the maximum number of characters buffered for a single expression, or -1 if unlimited
+     * @since 1.30
+     */
+    public int getMaxExpressionLength() {
+        return maxExpressionLength;
+    }
+
+    /**
+     * Limits how many characters are buffered while looking for the end token of an expression. Once a candidate
+     * grows beyond this length (begin token included) it is abandoned and its text is passed through unchanged, which
+     * keeps memory bounded for unterminated begin tokens in large files.
+     *
+     * @param maxExpressionLength the maximum expression length, or -1 (the default) for no limit
+     * @since 1.30
+     */
+    public void setMaxExpressionLength(int maxExpressionLength) {
+        this.maxExpressionLength = maxExpressionLength;
+    }
+
     public RecursionInterceptor getRecursionInterceptor() {
         return recursionInterceptor;
     }
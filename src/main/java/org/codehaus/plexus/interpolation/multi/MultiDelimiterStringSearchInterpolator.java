@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.codehaus.plexus.interpolation.ExpansionLimitExceededException;
 import org.codehaus.plexus.interpolation.InterpolationCycleException;
 import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.InterpolationPostProcessor;
@@ -36,7 +37,12 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
 
     private static final int MAX_TRIES = 10;
 
-    private Map existingAnswers = new HashMap();
+    private Map<String, Answer> existingAnswers = new HashMap<String, Answer>();
+
+    // for each expression, the cached answers that depend on it
+    private Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+
+    private long invalidations;
 
     private List<ValueSource> valueSources = new ArrayList<ValueSource>();
 
@@ -48,6 +54,10 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
 
     private String escapeString;
 
+    private int maxOutputLength = -1;
+
+    private int maxLookups = -1;
+
     public MultiDelimiterStringSearchInterpolator() {
         delimiters.add(DelimiterSpecification.DEFAULT_SPEC);
     }
@@ -67,6 +77,18 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
         return delimiters.remove(DelimiterSpecification.parse(delimiterSpec));
     }
 
+    /**
+     * @return the start delimiters of the expressions understood by this interpolator, in the order they were added
+     * @since 1.30
+     */
+    public Set<String> getDelimiterBegins() {
+        Set<String> begins = new LinkedHashSet<String>();
+        for (DelimiterSpecification delimiter : delimiters) {
+            begins.add(delimiter.getBegin());
+        }
+        return begins;
+    }
+
     public MultiDelimiterStringSearchInterpolator withValueSource(ValueSource vs) {
         addValueSource(vs);
         return this;
@@ -125,15 +147,55 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
      */
     public String interpolate(String input, RecursionInterceptor recursionInterceptor) throws InterpolationException {
         try {
-            return interpolate(input, recursionInterceptor, new HashSet());
+            return interpolate(input, recursionInterceptor, new Expansion());
         } finally {
             if (!cacheAnswers) {
-                existingAnswers.clear();
+                clearAnswers();
             }
         }
     }
 
-    private String interpolate(String input, RecursionInterceptor recursionInterceptor, Set<String> unresolvable)
+    /**
+     * Resolves an input that consists of exactly one expression, using the first delimiter specification found in it,
+     * without searching it for expressions first. Any other input is handled by
+     * {@link #interpolate(String, RecursionInterceptor)}.
+     *
+     * @since 1.30
+     */
+    public String resolveExpression(String expression, RecursionInterceptor recursionInterceptor)
+            throws InterpolationException {
+        if (expression == null) {
+            // return empty String to prevent NPE too
+            return "";
+        }
+
+        DelimiterSpecification selectedSpec = select(expression, -1);
+        if (selectedSpec == null || selectedSpec.getNextStartIndex() != 0) {
+            return interpolate(expression, recursionInterceptor);
+        }
+
+        String startExpr = selectedSpec.getBegin();
+        String endExpr = selectedSpec.getEnd();
+        int endIdx = expression.length() - endExpr.length();
+        if (endIdx < startExpr.length() || expression.indexOf(endExpr, 1) != endIdx) {
+            return interpolate(expression, recursionInterceptor);
+        }
+
+        try {
+            StringBuilder result = new StringBuilder();
+            String realExpr = expression.substring(startExpr.length(), endIdx);
+            if (!resolve(expression, realExpr, startExpr, endExpr, recursionInterceptor, new Expansion(), result)) {
+                return expression;
+            }
+            return result.toString();
+        } finally {
+            if (!cacheAnswers) {
+                clearAnswers();
+            }
+        }
+    }
+
+    private String interpolate(String input, RecursionInterceptor recursionInterceptor, Expansion expansion)
             throws InterpolationException {
         if (input == null) {
             // return empty String to prevent NPE too
@@ -142,6 +204,7 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
         StringBuilder result = new StringBuilder(input.length() * 2);
 
         String lastResult = input;
+        String wholeExpr = null;
         int tries = 0;
         do {
             tries++;
@@ -166,7 +229,7 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
                     break;
                 }
 
-                String wholeExpr = input.substring(startIdx, endIdx + endExpr.length());
+                wholeExpr = input.substring(startIdx, endIdx + endExpr.length());
                 String realExpr = wholeExpr.substring(startExpr.length(), wholeExpr.length() - endExpr.length());
 
                 if (startIdx >= 0 && escapeString != null && escapeString.length() > 0) {
@@ -179,91 +242,171 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
                                 --startEscapeIdx;
                             }
                             result.replace(startEscapeIdx, startEscapeIdx + escapeString.length(), "");
+                            checkOutputLength(result.length(), wholeExpr, expansion);
                             continue;
                         }
                     }
                 }
 
-                boolean resolved = false;
-                if (!unresolvable.contains(wholeExpr)) {
-                    if (realExpr.startsWith(".")) {
-                        realExpr = realExpr.substring(1);
-                    }
+                boolean resolved =
+                        resolve(wholeExpr, realExpr, startExpr, endExpr, recursionInterceptor, expansion, result);
 
-                    if (recursionInterceptor.hasRecursiveExpression(realExpr)) {
-                        throw new InterpolationCycleException(recursionInterceptor, realExpr, wholeExpr);
-                    }
+                if (!resolved) {
+                    result.append(wholeExpr);
+                    checkOutputLength(result.length(), wholeExpr, expansion);
+                }
+
+                if (endIdx > -1) {
+                    endIdx += endExpr.length() - 1;
+                }
+            }
+
+            if (endIdx == -1 && startIdx > -1) {
+                result.append(input, startIdx, input.length());
+            } else if (endIdx < input.length()) {
+                result.append(input, endIdx + 1, input.length());
+            }
+            checkOutputLength(result.length(), wholeExpr, expansion);
+        } while (!lastResult.equals(result.toString()) && tries < MAX_TRIES);
 
-                    recursionInterceptor.expressionResolutionStarted(realExpr);
+        return result.toString();
+    }
 
-                    Object value = existingAnswers.get(realExpr);
-                    Object bestAnswer = null;
-                    for (ValueSource vs : valueSources) {
-                        if (value != null) break;
+    /**
+     * Resolves a single expression found in the input and appends its value to the result.
+     *
+     * @return true if the expression was resolved, false if it must be left as-is
+     */
+    private boolean resolve(
+            String wholeExpr,
+            String realExpr,
+            String startExpr,
+            String endExpr,
+            RecursionInterceptor recursionInterceptor,
+            Expansion expansion,
+            StringBuilder result)
+            throws InterpolationException {
+        if (expansion.unresolvable.contains(wholeExpr)) {
+            if (!expansion.dependencies.isEmpty()) {
+                // the answer being resolved depends on this expression remaining unresolvable
+                Dependencies dependencies = expansion.dependencies.get(expansion.dependencies.size() - 1);
+                dependencies.expressions.add(realExpr.startsWith(".") ? realExpr.substring(1) : realExpr);
+                dependencies.valueSources.addAll(valueSources);
+            }
+            return false;
+        }
 
-                        value = vs.getValue(realExpr, startExpr, endExpr);
+        if (realExpr.startsWith(".")) {
+            realExpr = realExpr.substring(1);
+        }
 
-                        if (value != null && value.toString().contains(wholeExpr)) {
-                            bestAnswer = value;
-                            value = null;
-                        }
-                    }
+        if (recursionInterceptor.hasRecursiveExpression(realExpr)) {
+            throw new InterpolationCycleException(recursionInterceptor, realExpr, wholeExpr);
+        }
 
-                    // this is the simplest recursion check to catch exact recursion
-                    // (non synonym), and avoid the extra effort of more string
-                    // searching.
-                    if (value == null && bestAnswer != null) {
-                        throw new InterpolationCycleException(recursionInterceptor, realExpr, wholeExpr);
-                    }
+        recursionInterceptor.expressionResolutionStarted(realExpr);
+        expansion.path.add(realExpr);
+        Dependencies dependencies = null;
+        if (cacheAnswers) {
+            dependencies = new Dependencies();
+            dependencies.expressions.add(realExpr);
+            expansion.dependencies.add(dependencies);
+        }
+        try {
+            if (maxLookups >= 0 && ++expansion.lookups > maxLookups) {
+                throw new ExpansionLimitExceededException(
+                        "More than " + maxLookups + " expression lookups", wholeExpr, expansion.path);
+            }
 
-                    if (value != null) {
-                        value = interpolate(String.valueOf(value), recursionInterceptor, unresolvable);
-
-                        if (postProcessors != null && !postProcessors.isEmpty()) {
-                            for (Object postProcessor1 : postProcessors) {
-                                InterpolationPostProcessor postProcessor = (InterpolationPostProcessor) postProcessor1;
-                                Object newVal = postProcessor.execute(realExpr, value);
-                                if (newVal != null) {
-                                    value = newVal;
-                                    break;
-                                }
-                            }
-                        }
+            Answer existing = existingAnswers.get(realExpr);
+            Object value = null;
+            if (existing != null) {
+                value = existing.value;
+                if (dependencies != null) {
+                    dependencies.addAll(existing.dependencies);
+                }
+            }
+            Object bestAnswer = null;
+            for (ValueSource vs : valueSources) {
+                if (value != null) break;
 
-                        // could use:
-                        // result = matcher.replaceFirst( stringValue );
-                        // but this could result in multiple lookups of stringValue, and replaceAll is not correct
-                        // behaviour
-                        result.append(String.valueOf(value));
-                        resolved = true;
+                if (dependencies != null) {
+                    dependencies.valueSources.add(vs);
+                }
+                value = vs.getValue(realExpr, startExpr, endExpr);
 
-                        if (cacheAnswers) {
-                            existingAnswers.put(realExpr, value);
-                        }
-                    } else {
-                        unresolvable.add(wholeExpr);
-                    }
+                if (value != null && value.toString().contains(wholeExpr)) {
+                    bestAnswer = value;
+                    value = null;
+                }
+            }
 
-                    recursionInterceptor.expressionResolutionFinished(realExpr);
+            // this is the simplest recursion check to catch exact recursion
+            // (non synonym), and avoid the extra effort of more string
+            // searching.
+            if (value == null && bestAnswer != null) {
+                throw new InterpolationCycleException(recursionInterceptor, realExpr, wholeExpr);
+            }
+
+            if (value != null) {
+                // the output of the enclosing expansions counts towards the limit as well
+                long output = expansion.output;
+                expansion.output += result.length();
+                try {
+                    value = interpolate(String.valueOf(value), recursionInterceptor, expansion);
+                } finally {
+                    expansion.output = output;
                 }
 
-                if (!resolved) {
-                    result.append(wholeExpr);
+                if (postProcessors != null && !postProcessors.isEmpty()) {
+                    for (Object postProcessor1 : postProcessors) {
+                        InterpolationPostProcessor postProcessor = (InterpolationPostProcessor) postProcessor1;
+                        Object newVal = postProcessor.execute(realExpr, value);
+                        if (newVal != null) {
+                            value = newVal;
+                            break;
+                        }
+                    }
                 }
 
-                if (endIdx > -1) {
-                    endIdx += endExpr.length() - 1;
+                // could use:
+                // result = matcher.replaceFirst( stringValue );
+                // but this could result in multiple lookups of stringValue, and replaceAll is not correct
+                // behaviour
+                result.append(String.valueOf(value));
+                checkOutputLength(result.length(), wholeExpr, expansion);
+
+                if (cacheAnswers) {
+                    cache(realExpr, new Answer(value, dependencies));
                 }
+            } else {
+                expansion.unresolvable.add(wholeExpr);
             }
 
-            if (endIdx == -1 && startIdx > -1) {
-                result.append(input, startIdx, input.length());
-            } else if (endIdx < input.length()) {
-                result.append(input, endIdx + 1, input.length());
+            return value != null;
+        } finally {
+            if (dependencies != null) {
+                // whatever this answer depends on, the answer it is nested in depends on as well
+                expansion.dependencies.remove(expansion.dependencies.size() - 1);
+                if (!expansion.dependencies.isEmpty()) {
+                    expansion.dependencies.get(expansion.dependencies.size() - 1).addAll(dependencies);
+                }
             }
-        } while (!lastResult.equals(result.toString()) && tries < MAX_TRIES);
+            expansion.path.remove(expansion.path.size() - 1);
+            recursionInterceptor.expressionResolutionFinished(realExpr);
+        }
+    }
 
-        return result.toString();
+    /**
+     * Checks the output of the whole call: the given length, produced at the current level of expansion, and what
+     * the enclosing expansions produced so far.
+     */
+    private void checkOutputLength(int length, String expression, Expansion expansion)
+            throws ExpansionLimitExceededException {
+        if (maxOutputLength >= 0 && expansion.output + length > maxOutputLength) {
+            throw new ExpansionLimitExceededException(
+                    "Output exceeds " + maxOutputLength + " characters", expression, expansion.path);
+        }
     }
 
     private DelimiterSpecification select(String input, int lastEndIdx) {
@@ -322,6 +465,94 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
 
     public void clearAnswers() {
         existingAnswers.clear();
+        dependents.clear();
+    }
+
+    /**
+     * Evict the cached answers that depend on an expression: its own answer, and the answers of all expressions
+     * whose values referenced it, directly or through other expressions - including references it did not resolve.
+     * Use this when the value of the expression changed in one of the value sources.
+     *
+     * @param expression The expression, without delimiters
+     * @return the number of answers evicted
+     * @since 1.30
+     */
+    public int invalidate(String expression) {
+        Set<String> answers = dependents.get(expression);
+        if (answers == null) {
+            return 0;
+        }
+
+        int evicted = 0;
+        for (String answer : new ArrayList<String>(answers)) {
+            if (evict(answer)) {
+                evicted++;
+            }
+        }
+        invalidations += evicted;
+        return evicted;
+    }
+
+    /**
+     * Evict the cached answers for which the value source was consulted, whether it had a value or not. Use this
+     * when several values of the value source changed.
+     *
+     * @param valueSource The value source
+     * @return the number of answers evicted
+     * @since 1.30
+     */
+    public int invalidate(ValueSource valueSource) {
+        List<String> answers = new ArrayList<String>();
+        for (Map.Entry<String, Answer> answer : existingAnswers.entrySet()) {
+            if (answer.getValue().dependencies.valueSources.contains(valueSource)) {
+                answers.add(answer.getKey());
+            }
+        }
+
+        for (String answer : answers) {
+            evict(answer);
+        }
+        invalidations += answers.size();
+        return answers.size();
+    }
+
+    /**
+     * @return the number of cached answers evicted so far by {@link #invalidate(String)} or
+     *         {@link #invalidate(ValueSource)}; answers dropped by {@link #clearAnswers()} are not counted
+     * @since 1.30
+     */
+    public long getInvalidationCount() {
+        return invalidations;
+    }
+
+    private void cache(String expression, Answer answer) {
+        evict(expression);
+        existingAnswers.put(expression, answer);
+        for (String dependency : answer.dependencies.expressions) {
+            Set<String> answers = dependents.get(dependency);
+            if (answers == null) {
+                answers = new HashSet<String>();
+                dependents.put(dependency, answers);
+            }
+            answers.add(expression);
+        }
+    }
+
+    private boolean evict(String expression) {
+        Answer answer = existingAnswers.remove(expression);
+        if (answer == null) {
+            return false;
+        }
+        for (String dependency : answer.dependencies.expressions) {
+            Set<String> answers = dependents.get(dependency);
+            if (answers != null) {
+                answers.remove(expression);
+                if (answers.isEmpty()) {
+                    dependents.remove(dependency);
+                }
+            }
+        }
+        return true;
     }
 
     public String getEscapeString() {
@@ -337,6 +568,38 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
         return this;
     }
 
+    public int getMaxOutputLength() {
+        return maxOutputLength;
+    }
+
+    /**
+     * Limit the length of the output of a single interpolate(..) call. Expressions are expanded into that output, so
+     * the characters produced at all nesting levels, literal text included, count towards the same limit, which is
+     * checked as the output grows. Exceeding it fails the call with an
+     * {@link ExpansionLimitExceededException}.
+     *
+     * @param maxOutputLength The maximum number of characters, or -1 (the default) for no limit.
+     * @since 1.30
+     */
+    public void setMaxOutputLength(int maxOutputLength) {
+        this.maxOutputLength = maxOutputLength;
+    }
+
+    public int getMaxLookups() {
+        return maxLookups;
+    }
+
+    /**
+     * Limit the number of expressions, nested ones included, a single interpolate(..) call may resolve. Exceeding
+     * it fails the call with an {@link ExpansionLimitExceededException}.
+     *
+     * @param maxLookups The maximum number of expression lookups, or -1 (the default) for no limit.
+     * @since 1.30
+     */
+    public void setMaxLookups(int maxLookups) {
+        this.maxLookups = maxLookups;
+    }
+
     public MultiDelimiterStringSearchInterpolator setDelimiterSpecs(LinkedHashSet<String> specs) {
         delimiters.clear();
         for (String spec : specs) {
@@ -348,4 +611,50 @@ public class MultiDelimiterStringSearchInterpolator implements Interpolator {
 
         return this;
     }
+
+    /**
+     * A cached answer, and what it depends on.
+     */
+    private static final class Answer {
+        private final Object value;
+
+        private final Dependencies dependencies;
+
+        Answer(Object value, Dependencies dependencies) {
+            this.value = value;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * What a cached answer depends on: the expressions looked up to resolve it, nested ones included, and the value
+     * sources consulted.
+     */
+    private static final class Dependencies {
+        private final Set<String> expressions = new HashSet<String>();
+
+        private final Set<ValueSource> valueSources = new HashSet<ValueSource>();
+
+        void addAll(Dependencies other) {
+            expressions.addAll(other.expressions);
+            valueSources.addAll(other.valueSources);
+        }
+    }
+
+    /**
+     * State of a single interpolate(..) call.
+     */
+    private static final class Expansion {
+        private final Set<String> unresolvable = new HashSet<String>();
+
+        private final List<String> path = new ArrayList<String>();
+
+        private int lookups;
+
+        // what each cached answer being resolved depends on, innermost last
+        private final List<Dependencies> dependencies = new ArrayList<Dependencies>();
+
+        // output of the enclosing expansions, which the current one is going to be part of
+        private long output;
+    }
 }
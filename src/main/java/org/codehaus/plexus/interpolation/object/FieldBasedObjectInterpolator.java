@@ -23,18 +23,20 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 
 import org.codehaus.plexus.interpolation.BasicInterpolator;
 import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.Interpolator;
 import org.codehaus.plexus.interpolation.RecursionInterceptor;
 import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
+import org.codehaus.plexus.interpolation.StringSearchInterpolator;
+import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpolator;
 
 /**
  * Reflectively traverses an object graph and uses an {@link Interpolator} instance to resolve any String fields in the
@@ -51,9 +53,12 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
 
     public static final Set<String> DEFAULT_BLACKLISTED_PACKAGE_PREFIXES;
 
-    private static final Map<Class, Field[]> fieldsByClass = new WeakHashMap<Class, Field[]>();
-
-    private static final Map<Class, Boolean> fieldIsPrimitiveByClass = new WeakHashMap<Class, Boolean>();
+    /**
+     * Declared fields of each class that may hold interpolatable values, i.e. all non-primitive fields, already made
+     * accessible. {@link ClassValue} keeps this safe for concurrent use and doesn't pin classes (or their class
+     * loaders) in memory. Replaced wholesale by {@link #clearCaches()}.
+     */
+    private static volatile ClassValue<Field[]> fieldsByClass = newFieldCache();
 
     static {
         Set<String> blacklistedFields = new HashSet<String>();
@@ -72,14 +77,39 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
      * queries for fields. These caches are static since they apply at the class level, not the instance level.
      */
     public static void clearCaches() {
-        fieldsByClass.clear();
-        fieldIsPrimitiveByClass.clear();
+        fieldsByClass = newFieldCache();
+    }
+
+    private static ClassValue<Field[]> newFieldCache() {
+        return new ClassValue<Field[]>() {
+            @Override
+            protected Field[] computeValue(Class<?> cls) {
+                List<Field> fields = new ArrayList<Field>();
+                for (Field field : cls.getDeclaredFields()) {
+                    if (field.getType().isPrimitive()) {
+                        continue;
+                    }
+
+                    // getDeclaredFields() hands out fresh copies, so this doesn't leak accessibility to other callers.
+                    try {
+                        field.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        // reported as a warning when the field is read
+                    }
+                    fields.add(field);
+                }
+
+                return fields.toArray(new Field[fields.size()]);
+            }
+        };
     }
 
     private Set<String> blacklistedFieldNames;
 
     private Set<String> blacklistedPackagePrefixes;
 
+    private Set<String> expressionStartTokens;
+
     private List<ObjectInterpolationWarning> warnings = new ArrayList<ObjectInterpolationWarning>();
 
     /**
@@ -102,6 +132,20 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
         this.blacklistedPackagePrefixes = blacklistedPackagePrefixes;
     }
 
+    /**
+     * Set the expression start tokens (for example <code>${</code>) recognized by the interpolators that will be
+     * passed to this instance. Strings that contain none of these tokens are left as-is without calling the
+     * interpolator at all. When <code>null</code> (the default), the tokens are taken from the interpolator if it is a
+     * {@link StringSearchInterpolator} or a {@link MultiDelimiterStringSearchInterpolator}; for any other
+     * interpolator, whose delimiters are unknown, every String is handed to it unless the tokens are set explicitly.
+     *
+     * @param expressionStartTokens The start tokens of the expressions understood by the interpolator, or null
+     * @since 1.30
+     */
+    public void setExpressionStartTokens(Set<String> expressionStartTokens) {
+        this.expressionStartTokens = expressionStartTokens;
+    }
+
     /**
      * Returns true if the last interpolation execution generated warnings.
      */
@@ -149,6 +193,7 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
                 recursionInterceptor,
                 blacklistedFieldNames,
                 blacklistedPackagePrefixes,
+                expressionStartTokens != null ? expressionStartTokens : getExpressionStartTokens(interpolator),
                 warnings);
 
         InterpolationException error = (InterpolationException) AccessController.doPrivileged(action);
@@ -158,6 +203,16 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
         }
     }
 
+    private static Set<String> getExpressionStartTokens(BasicInterpolator interpolator) {
+        if (interpolator instanceof StringSearchInterpolator) {
+            return Collections.singleton(((StringSearchInterpolator) interpolator).getStartExpr());
+        }
+        if (interpolator instanceof MultiDelimiterStringSearchInterpolator) {
+            return ((MultiDelimiterStringSearchInterpolator) interpolator).getDelimiterBegins();
+        }
+        return null;
+    }
+
     private static final class InterpolateObjectAction implements PrivilegedAction {
 
         private final LinkedList<InterpolationTarget> interpolationTargets;
@@ -172,6 +227,14 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
 
         private final RecursionInterceptor recursionInterceptor;
 
+        private final String[] expressionStartTokens;
+
+        /**
+         * Strings containing expressions that were already interpolated during this traversal, mapped to their
+         * interpolated form. Model graphs tend to repeat the same values many times over.
+         */
+        private final Map<String, String> interpolatedStrings = new HashMap<String, String>();
+
         /**
          * Setup an object graph traversal for the given target starting point. This will initialize a queue of objects
          * to traverse and interpolate by adding the target object.
@@ -182,8 +245,12 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
                 RecursionInterceptor recursionInterceptor,
                 Set blacklistedFieldNames,
                 Set blacklistedPackagePrefixes,
+                Set<String> expressionStartTokens,
                 List<ObjectInterpolationWarning> warningCollector) {
             this.recursionInterceptor = recursionInterceptor;
+            this.expressionStartTokens = expressionStartTokens == null
+                    ? null
+                    : expressionStartTokens.toArray(new String[expressionStartTokens.size()]);
             this.blacklistedFieldNames = blacklistedFieldNames;
             this.warningCollector = warningCollector;
             this.blacklistedPackagePrefixes =
@@ -229,44 +296,26 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
                 evaluateArray(obj, basePath);
             } else if (isQualifiedForInterpolation(cls)) {
                 Field[] fields = fieldsByClass.get(cls);
-                if (fields == null) {
-                    fields = cls.getDeclaredFields();
-                    fieldsByClass.put(cls, fields);
-                }
 
                 for (Field field : fields) {
                     Class type = field.getType();
-                    if (isQualifiedForInterpolation(field, type)) {
-                        boolean isAccessible = field.isAccessible();
-                        synchronized (cls) {
-                            field.setAccessible(true);
-                            try {
-                                try {
-                                    if (String.class == type) {
-                                        interpolateString(obj, field);
-                                    } else if (Collection.class.isAssignableFrom(type)) {
-                                        if (interpolateCollection(obj, basePath, field)) {
-                                            continue;
-                                        }
-                                    } else if (Map.class.isAssignableFrom(type)) {
-                                        interpolateMap(obj, basePath, field);
-                                    } else {
-                                        interpolateObject(obj, basePath, field);
-                                    }
-                                } catch (IllegalArgumentException e) {
-                                    warningCollector.add(new ObjectInterpolationWarning(
-                                            "Failed to interpolate field. Skipping.",
-                                            basePath + "." + field.getName(),
-                                            e));
-                                } catch (IllegalAccessException e) {
-                                    warningCollector.add(new ObjectInterpolationWarning(
-                                            "Failed to interpolate field. Skipping.",
-                                            basePath + "." + field.getName(),
-                                            e));
-                                }
-                            } finally {
-                                field.setAccessible(isAccessible);
+                    if (isQualifiedForInterpolation(field)) {
+                        try {
+                            if (String.class == type) {
+                                interpolateString(obj, field);
+                            } else if (Collection.class.isAssignableFrom(type)) {
+                                interpolateCollection(obj, basePath, field);
+                            } else if (Map.class.isAssignableFrom(type)) {
+                                interpolateMap(obj, basePath, field);
+                            } else {
+                                interpolateObject(obj, basePath, field);
                             }
+                        } catch (IllegalArgumentException e) {
+                            warningCollector.add(new ObjectInterpolationWarning(
+                                    "Failed to interpolate field. Skipping.", basePath + "." + field.getName(), e));
+                        } catch (IllegalAccessException e) {
+                            warningCollector.add(new ObjectInterpolationWarning(
+                                    "Failed to interpolate field. Skipping.", basePath + "." + field.getName(), e));
                         }
                     }
                 }
@@ -298,7 +347,7 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
 
                     if (value != null) {
                         if (String.class == value.getClass()) {
-                            String interpolated = interpolator.interpolate((String) value, recursionInterceptor);
+                            String interpolated = interpolateValue((String) value);
 
                             if (!interpolated.equals(value)) {
                                 try {
@@ -342,7 +391,7 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
                 for (Object value : originalValues) {
                     if (value != null) {
                         if (String.class == value.getClass()) {
-                            String interpolated = interpolator.interpolate((String) value, recursionInterceptor);
+                            String interpolated = interpolateValue((String) value);
 
                             if (!interpolated.equals(value)) {
                                 c.add(interpolated);
@@ -370,7 +419,7 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
         private void interpolateString(Object obj, Field field) throws IllegalAccessException, InterpolationException {
             String value = (String) field.get(obj);
             if (value != null) {
-                String interpolated = interpolator.interpolate(value, recursionInterceptor);
+                String interpolated = interpolateValue(value);
 
                 if (!interpolated.equals(value)) {
                     field.set(obj, interpolated);
@@ -378,6 +427,39 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
             }
         }
 
+        /**
+         * Interpolate a single String value. Values that cannot contain an expression are returned as-is, and values
+         * that were already interpolated during this traversal are answered from the memo instead of being handed to
+         * the interpolator again.
+         */
+        private String interpolateValue(String value) throws InterpolationException {
+            if (!mayContainExpression(value)) {
+                return value;
+            }
+
+            String interpolated = interpolatedStrings.get(value);
+            if (interpolated == null) {
+                interpolated = interpolator.interpolate(value, recursionInterceptor);
+                interpolatedStrings.put(value, interpolated);
+            }
+
+            return interpolated;
+        }
+
+        private boolean mayContainExpression(String value) {
+            if (expressionStartTokens == null) {
+                return true;
+            }
+
+            for (String token : expressionStartTokens) {
+                if (value.contains(token)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
         /**
          * Using the package-prefix blacklist, determine whether the given class is qualified for interpolation, or
          * whether it should be ignored.
@@ -394,21 +476,10 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
         }
 
         /**
-         * Using the field-name blacklist and the primitive-field cache, determine whether the given field in the given
-         * class is qualified for interpolation. Primitive fields and fields listed in the blacklist will be ignored.
-         * The primitive-field cache is used to improve the performance of the reflective operations in this method,
-         * since this method is a hotspot.
+         * Using the field-name blacklist, determine whether the given field is qualified for interpolation. Primitive
+         * fields never make it into the field cache, so only the blacklist needs checking here.
          */
-        private boolean isQualifiedForInterpolation(Field field, Class fieldType) {
-            if (!fieldIsPrimitiveByClass.containsKey(fieldType)) {
-                fieldIsPrimitiveByClass.put(fieldType, fieldType.isPrimitive());
-            }
-
-            //noinspection UnnecessaryUnboxing
-            if (fieldIsPrimitiveByClass.get(fieldType)) {
-                return false;
-            }
-
+        private boolean isQualifiedForInterpolation(Field field) {
             return !blacklistedFieldNames.contains(field.getName());
         }
 
@@ -421,7 +492,7 @@ public class FieldBasedObjectInterpolator implements ObjectInterpolator {
                 Object value = Array.get(target, i);
                 if (value != null) {
                     if (String.class == value.getClass()) {
-                        String interpolated = interpolator.interpolate((String) value, recursionInterceptor);
+                        String interpolated = interpolateValue((String) value);
 
                         if (!interpolated.equals(value)) {
                             Array.set(target, i, interpolated);
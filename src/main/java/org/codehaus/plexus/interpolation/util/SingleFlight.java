@@ -0,0 +1,175 @@
+package org.codehaus.plexus.interpolation.util;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Shares the computation of a value among all threads that ask for the same key while it is in progress: the first
+ * caller computes it, the others wait for its result. The result may also be remembered for a while, so that later
+ * callers get it without computing it again. Failures are passed on to the callers that waited for them, but never
+ * remembered. Expired results are dropped when their key is asked for again, and in a sweep over all keys once
+ * enough new keys were added, so that a changing key space does not make the remembered results grow without bound.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values, which may be null
+ * @since 1.30
+ */
+public final class SingleFlight<K, V> {
+
+    /** the minimum number of keys added between two sweeps for expired results */
+    private static final int SWEEP_INTERVAL = 64;
+
+    private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<K, Flight<V>>();
+
+    private final long ttlNanos;
+
+    private final AtomicInteger addedSinceSweep = new AtomicInteger();
+
+    /**
+     * Only share computations that are in progress, do not remember their results.
+     */
+    public SingleFlight() {
+        this(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param ttl  how long to remember a result after it was computed; 0 not to remember results
+     * @param unit the unit of ttl
+     */
+    public SingleFlight(long ttl, TimeUnit unit) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("ttl must not be negative: " + ttl);
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * @param key     the key of the value
+     * @param compute computes the value, unless another thread already does or a remembered result is still valid
+     * @return the value
+     * @throws IllegalStateException if the computation of a key asks for the same key again
+     */
+    public V get(K key, Function<? super K, ? extends V> compute) {
+        while (true) {
+            Flight<V> flight = flights.get(key);
+            if (flight != null && flight.isExpired(ttlNanos)) {
+                flights.remove(key, flight);
+                flight = null;
+            }
+
+            if (flight == null) {
+                Flight<V> mine = new Flight<V>();
+                flight = flights.putIfAbsent(key, mine);
+                if (flight == null) {
+                    sweepIfDue();
+                    return run(key, mine, compute);
+                }
+            }
+
+            if (flight.owner == Thread.currentThread() && !flight.result.isDone()) {
+                throw new IllegalStateException("Recursive computation of " + key);
+            }
+            try {
+                return flight.result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Forget all remembered results. Computations in progress are still shared with the threads waiting for them.
+     */
+    public void clear() {
+        for (ConcurrentMap.Entry<K, Flight<V>> entry : flights.entrySet()) {
+            if (entry.getValue().result.isDone()) {
+                flights.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys with a computation in progress or a remembered result, expired or not
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    /**
+     * Drop the expired results once the number of keys added since the last sweep is a good part of all keys, so
+     * that the cost of sweeping stays proportional to the number of keys added.
+     */
+    private void sweepIfDue() {
+        if (ttlNanos == 0 || ttlNanos == Long.MAX_VALUE) {
+            // results are either not remembered, or never expire
+            return;
+        }
+        int added = addedSinceSweep.incrementAndGet();
+        if (added < SWEEP_INTERVAL || added < flights.size() / 2 || !addedSinceSweep.compareAndSet(added, 0)) {
+            return;
+        }
+        for (ConcurrentMap.Entry<K, Flight<V>> entry : flights.entrySet()) {
+            if (entry.getValue().isExpired(ttlNanos)) {
+                flights.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private V run(K key, Flight<V> flight, Function<? super K, ? extends V> compute) {
+        V value;
+        try {
+            value = compute.apply(key);
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+
+        flight.completed = System.nanoTime();
+        if (ttlNanos == 0) {
+            flights.remove(key, flight);
+        }
+        flight.result.complete(value);
+        return value;
+    }
+
+    private static final class Flight<V> {
+        private final Thread owner = Thread.currentThread();
+
+        private final CompletableFuture<V> result = new CompletableFuture<V>();
+
+        // written before result completes, read after isDone()
+        private volatile long completed;
+
+        boolean isExpired(long ttlNanos) {
+            return result.isDone() && System.nanoTime() - completed >= ttlNanos;
+        }
+    }
+}
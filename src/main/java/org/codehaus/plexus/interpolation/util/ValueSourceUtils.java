@@ -69,25 +69,37 @@ public final class ValueSourceUtils {
     }
 
     public static String trimPrefix(String expression, String[] possiblePrefixes, boolean allowUnprefixedExpressions) {
+        int idx = trimPrefixIndex(expression, possiblePrefixes, allowUnprefixedExpressions);
+        return idx < 0 ? null : expression.substring(idx);
+    }
+
+    /**
+     * Allocation-free variant of {@link #trimPrefix(String, String[], boolean)}: rather than the trimmed expression,
+     * return the index in the expression at which it starts.
+     *
+     * @param expression                 The expression to trim
+     * @param possiblePrefixes           The list of possible expression prefixes to trim
+     * @param allowUnprefixedExpressions Whether to accept the expression if it doesn't start with one of the prefixes
+     * @return The start index of the trimmed expression, or -1 wherever {@link #trimPrefix(String, String[], boolean)}
+     *         would return null.
+     * @since 1.30
+     */
+    public static int trimPrefixIndex(
+            String expression, String[] possiblePrefixes, boolean allowUnprefixedExpressions) {
         if (expression == null) {
-            return null;
+            return -1;
         }
 
-        String realExpr = null;
         for (String prefix : possiblePrefixes) {
             if (expression.startsWith(prefix)) {
-                realExpr = expression.substring(prefix.length());
-                if (realExpr.startsWith(".")) {
-                    realExpr = realExpr.substring(1);
+                int idx = prefix.length();
+                if (expression.startsWith(".", idx)) {
+                    idx++;
                 }
-                break;
+                return idx;
             }
         }
 
-        if (realExpr == null && allowUnprefixedExpressions) {
-            realExpr = expression;
-        }
-
-        return realExpr;
+        return allowUnprefixedExpressions ? 0 : -1;
     }
 }
@@ -1,3 +1,4 @@
 module org.codehaus.plexus.interpolation {
     exports org.codehaus.plexus.interpolation;
+    exports org.codehaus.plexus.interpolation.file;
 }
@@ -0,0 +1,155 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingValueSourceTest {
+
+    @Test
+    void concurrentLookupsShareOneCall() throws Exception {
+        final int threads = 64;
+        final String[] expressions = {"git.commit", "git.branch", "secret", "missing"};
+        final CountDownLatch release = new CountDownLatch(1);
+        final ConcurrentMap<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final CoalescingValueSource source = new CoalescingValueSource(new AbstractValueSource(false) {
+            @Override
+            public Object getValue(String expression) {
+                calls.computeIfAbsent(expression, key -> new AtomicInteger()).incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "missing".equals(expression) ? null : expression.toUpperCase();
+            }
+        });
+
+        final CyclicBarrier start = new CyclicBarrier(threads);
+        final CountDownLatch asking = new CountDownLatch(threads);
+        final List<Object> results = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final String expression = expressions[i % expressions.length];
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    asking.countDown();
+                    Object value = source.getValue(expression, "${", "}");
+                    synchronized (results) {
+                        results.add(expression + "=" + value);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        assertTrue(asking.await(10, TimeUnit.SECONDS));
+        // give the last threads time to join the lookups in progress before these complete
+        Thread.sleep(200);
+        release.countDown();
+        for (Thread worker : workers) {
+            worker.join(10000);
+        }
+
+        assertEquals(threads, results.size());
+        for (String expression : expressions) {
+            assertEquals(1, calls.get(expression).get(), expression);
+            String expected = expression + "=" + ("missing".equals(expression) ? null : expression.toUpperCase());
+            assertEquals(threads / expressions.length, results.stream().filter(expected::equals).count(), expression);
+        }
+    }
+
+    @Test
+    void rememberValuesUntilCleared() throws Exception {
+        CountingValueSource counting = new CountingValueSource();
+        CoalescingValueSource source = new CoalescingValueSource(counting, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(source);
+        assertEquals("KEY KEY", interpolator.interpolate("${key} ${key}"));
+        assertEquals("KEY", interpolator.interpolate("${key}"));
+        assertEquals(1, counting.calls.get());
+
+        source.clear();
+        assertEquals("KEY", source.getValue("key"));
+        assertEquals(2, counting.calls.get());
+    }
+
+    @Test
+    void withoutTtlLookUpAgain() {
+        CountingValueSource counting = new CountingValueSource();
+        CoalescingValueSource source = new CoalescingValueSource(counting);
+
+        assertEquals("KEY", source.getValue("key"));
+        assertEquals("KEY", source.getValue("key"));
+        assertEquals(2, counting.calls.get());
+    }
+
+    @Test
+    void failuresAreNotRemembered() {
+        final AtomicInteger calls = new AtomicInteger();
+        CoalescingValueSource source = new CoalescingValueSource(
+                new AbstractValueSource(false) {
+                    @Override
+                    public Object getValue(String expression) {
+                        if (calls.incrementAndGet() == 1) {
+                            throw new IllegalStateException("unavailable");
+                        }
+                        return "value";
+                    }
+                },
+                1,
+                TimeUnit.HOURS);
+
+        assertThrows(IllegalStateException.class, () -> source.getValue("key"));
+        assertEquals("value", source.getValue("key"));
+        assertEquals("value", source.getValue("key"));
+        assertEquals(2, calls.get());
+    }
+
+    private static class CountingValueSource extends AbstractValueSource {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingValueSource() {
+            super(false);
+        }
+
+        @Override
+        public Object getValue(String expression) {
+            calls.incrementAndGet();
+            return expression.toUpperCase();
+        }
+    }
+}
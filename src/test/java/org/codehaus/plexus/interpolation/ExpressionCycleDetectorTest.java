@@ -0,0 +1,147 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpressionCycleDetectorTest {
+
+    @Test
+    void findAllCyclesInOnePass() {
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "${b}");
+        values.put("b", "${a}");
+        values.put("c", "${c}");
+        values.put("d", "${e}-${a}");
+        values.put("e", "plain");
+        values.put("f", "${x}${y}");
+        values.put("x", "${y}");
+        values.put("y", "${.f}");
+
+        ExpressionCycles cycles = new ExpressionCycleDetector()
+                .addValueSource(new MapBasedValueSource(values))
+                .detect();
+
+        assertTrue(cycles.hasCycles());
+        assertEquals(3, cycles.getCycles().size());
+
+        HashSet<HashSet<String>> found = new HashSet<>();
+        for (List<String> cycle : cycles.getCycles()) {
+            found.add(new HashSet<>(cycle));
+        }
+        assertTrue(found.contains(new HashSet<>(Arrays.asList("a", "b"))));
+        assertTrue(found.contains(new HashSet<>(Arrays.asList("c"))));
+        assertTrue(found.contains(new HashSet<>(Arrays.asList("f", "x", "y"))));
+
+        assertTrue(cycles.isAcyclic("d"));
+        assertTrue(cycles.isAcyclic("e"));
+        assertTrue(cycles.isCyclic("a"));
+        assertFalse(cycles.isAcyclic("a"));
+        assertFalse(cycles.isAcyclic("unknown"));
+    }
+
+    @Test
+    void firstValueSourceWins() {
+        Properties first = new Properties();
+        first.setProperty("a", "${b}");
+        first.setProperty("b", "value");
+
+        Properties second = new Properties();
+        second.setProperty("b", "${a}");
+
+        ExpressionCycles cycles = new ExpressionCycleDetector()
+                .addValueSource(new PropertiesBasedValueSource(first))
+                .addValueSource(new org.codehaus.plexus.interpolation.fixed.PropertiesBasedValueSource(second))
+                .detect();
+
+        assertFalse(cycles.hasCycles());
+    }
+
+    @Test
+    void ignoreEscapedExpressionsAndCustomDelimiters() {
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "\\@b@ @c@");
+        values.put("b", "@a@");
+        values.put("c", "${a}");
+
+        ExpressionCycles cycles = new ExpressionCycleDetector("@", "@")
+                .withEscapeString("\\")
+                .addValueSource(new MapBasedValueSource(values))
+                .detect();
+
+        assertFalse(cycles.hasCycles());
+    }
+
+    @Test
+    void handleLongReferenceChains() {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            values.put("k" + i, "${k" + (i + 1) + "}");
+        }
+        values.put("k100000", "${k0}");
+
+        ExpressionCycles cycles = new ExpressionCycleDetector()
+                .addValueSource(new MapBasedValueSource(values))
+                .detect();
+
+        assertEquals(1, cycles.getCycles().size());
+        assertEquals(100001, cycles.getCycles().get(0).size());
+    }
+
+    @Test
+    void skipTrackingOfAcyclicExpressions() throws Exception {
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "${b}");
+        values.put("b", "${a}");
+        values.put("c", "${d}");
+        values.put("d", "value");
+
+        MapBasedValueSource valueSource = new MapBasedValueSource(values);
+        ExpressionCycles cycles =
+                new ExpressionCycleDetector().addValueSource(valueSource).detect();
+
+        final List<String> tracked = new ArrayList<>();
+        RecursionInterceptor interceptor = cycles.skipAcyclic(new SimpleRecursionInterceptor() {
+            public void expressionResolutionStarted(String expression) {
+                tracked.add(expression);
+                super.expressionResolutionStarted(expression);
+            }
+        });
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(valueSource);
+
+        assertEquals("value", interpolator.interpolate("${c}", interceptor));
+        assertTrue(tracked.isEmpty());
+
+        assertThrows(InterpolationCycleException.class, () -> interpolator.interpolate("${a}", interceptor));
+        assertEquals(Arrays.asList("a", "b"), tracked);
+    }
+}
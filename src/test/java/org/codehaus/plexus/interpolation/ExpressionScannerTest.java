@@ -0,0 +1,144 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpolator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpressionScannerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void listExpressionsInOrderWithOffsets() {
+        List<ExpressionReference> references =
+                new ExpressionScanner().withEscapeString("\\").scan("${b} ${a} \\${c} ${.b} ${unterminated");
+
+        assertEquals(2, references.size());
+        assertEquals("b", references.get(0).getExpression());
+        assertArrayEquals(new int[] {0, 16}, references.get(0).getOffsets());
+        assertEquals("a", references.get(1).getExpression());
+        assertEquals(5, references.get(1).getOffset());
+        assertEquals("${", references.get(1).getStartExpr());
+        assertEquals("}", references.get(1).getEndExpr());
+    }
+
+    @Test
+    void findNothingWithoutExpressions() {
+        assertTrue(new ExpressionScanner().scan("no expressions, just $ and { and }").isEmpty());
+    }
+
+    @Test
+    void scanReaderAndFile() throws Exception {
+        String template = "@name@ is @age@ years old, @name@";
+        Path file = dir.resolve("template.txt");
+        Files.write(file, template.getBytes(StandardCharsets.UTF_8));
+
+        ExpressionScanner scanner = new ExpressionScanner("@", "@");
+
+        assertEquals(expressions(scanner.scan(template)), expressions(scanner.scan(new StringReader(template))));
+        assertEquals(expressions(scanner.scan(template)), expressions(scanner.scan(file, StandardCharsets.UTF_8)));
+        assertEquals("[name, age]", expressions(scanner.scan(file, StandardCharsets.UTF_8)).toString());
+    }
+
+    @Test
+    void findWhatStringSearchInterpolatorLooksUp() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            String template = randomTemplate(random);
+
+            StringSearchInterpolator interpolator = new StringSearchInterpolator();
+            interpolator.setEscapeString("\\");
+            RecordingValueSource recorder = new RecordingValueSource();
+            interpolator.addValueSource(recorder);
+            interpolator.interpolate(template);
+
+            ExpressionScanner scanner = new ExpressionScanner().withEscapeString("\\");
+            assertEquals(new ArrayList<>(recorder.expressions), expressions(scanner.scan(template)), template);
+        }
+    }
+
+    @Test
+    void findWhatMultiDelimiterInterpolatorLooksUp() throws Exception {
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            String template = randomTemplate(random);
+
+            MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+            interpolator.addDelimiterSpec("@");
+            interpolator.addDelimiterSpec("<*>");
+            interpolator.setEscapeString("\\");
+            RecordingValueSource recorder = new RecordingValueSource();
+            interpolator.addValueSource(recorder);
+            interpolator.interpolate(template);
+
+            ExpressionScanner scanner = new ExpressionScanner()
+                    .addDelimiterSpec("@")
+                    .addDelimiterSpec("<*>")
+                    .withEscapeString("\\");
+            assertEquals(new ArrayList<>(recorder.expressions), expressions(scanner.scan(template)), template);
+        }
+    }
+
+    private static String randomTemplate(Random random) {
+        String[] parts = {"${", "}", "@", "<", ">", "\\", "a", "b", ".", " "};
+        StringBuilder template = new StringBuilder();
+        for (int i = random.nextInt(30); i > 0; i--) {
+            template.append(parts[random.nextInt(parts.length)]);
+        }
+        return template.toString();
+    }
+
+    private static List<String> expressions(List<ExpressionReference> references) {
+        List<String> expressions = new ArrayList<>();
+        for (ExpressionReference reference : references) {
+            expressions.add(reference.getExpression());
+        }
+        return expressions;
+    }
+
+    private static class RecordingValueSource extends AbstractValueSource {
+
+        private final Set<String> expressions = new LinkedHashSet<>();
+
+        RecordingValueSource() {
+            super(false);
+        }
+
+        @Override
+        public Object getValue(String expression) {
+            expressions.add(expression);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InterpolationDeadlineTest {
+
+    @Test
+    void removedListenersAreNotRun() {
+        InterpolationDeadline deadline = InterpolationDeadline.cancellable();
+        AtomicInteger runs = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            Runnable listener = runs::incrementAndGet;
+            deadline.addExpiryListener(listener);
+            deadline.removeExpiryListener(listener);
+        }
+        Runnable kept = runs::incrementAndGet;
+        deadline.addExpiryListener(kept);
+
+        deadline.cancel();
+        assertEquals(1, runs.get());
+
+        deadline.addExpiryListener(runs::incrementAndGet);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void timedDeadlineRunsListenersWhenItPasses() throws Exception {
+        InterpolationDeadline deadline = InterpolationDeadline.after(50, TimeUnit.MILLISECONDS);
+        CountDownLatch expired = new CountDownLatch(1);
+        deadline.addExpiryListener(expired::countDown);
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertTrue(deadline.isExpired());
+        assertTrue(deadline.whenExpired().isDone());
+    }
+
+    @Test
+    void whenExpiredReturnsTheSameFuture() {
+        InterpolationDeadline deadline = InterpolationDeadline.cancellable();
+        assertTrue(deadline.whenExpired() == deadline.whenExpired());
+
+        deadline.whenExpired().complete(null);
+        assertFalse(deadline.isExpired());
+    }
+}
@@ -232,6 +232,138 @@ class InterpolatorFilterReaderTest {
         assertEquals("${prefix1.name}", buf.toString());
     }
 
+    @Test
+    void blockReadsMatchSingleCharacterReads() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("empty", "");
+
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("line ").append(i).append(": ${name}${empty} $ {x} \\${name} ${unknown} ${name\n");
+        }
+
+        Interpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        InterpolatorFilterReader single =
+                new InterpolatorFilterReader(new StringReader(input.toString()), interpolator);
+        single.setEscapeString("\\");
+        StringBuilder expected = new StringBuilder();
+        int ch;
+        while ((ch = single.read()) != -1) {
+            expected.append((char) ch);
+        }
+
+        for (int size : new int[] {1, 3, 7, 1024, 100000}) {
+            InterpolatorFilterReader r = new InterpolatorFilterReader(new StringReader(input.toString()), interpolator);
+            r.setEscapeString("\\");
+            StringBuilder buf = new StringBuilder();
+            char[] cbuf = new char[size + 2];
+            int read;
+            while ((read = r.read(cbuf, 1, size)) > -1) {
+                buf.append(cbuf, 1, read);
+            }
+
+            assertEquals(expected.toString(), buf.toString(), "read size " + size);
+        }
+    }
+
+    @Test
+    void skipFilteredCharacters() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+
+        Interpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        InterpolatorFilterReader r = new InterpolatorFilterReader(new StringReader("${name} is ${name}"), interpolator);
+
+        assertEquals(3, r.skip(3));
+        assertEquals('o', r.read());
+        assertEquals(5, r.skip(5));
+        assertEquals('j', r.read());
+        assertEquals(4, r.skip(100));
+        assertEquals(-1, r.read());
+    }
+
+    @Test
+    void unterminatedExpressionLongerThanLimitPassesThrough() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+
+        StringBuilder garbage = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            garbage.append((char) ('a' + i % 26));
+        }
+        String input = "start ${" + garbage + " ${name} end";
+
+        Interpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        InterpolatorFilterReader r = new InterpolatorFilterReader(new StringReader(input), interpolator);
+        r.setMaxExpressionLength(64);
+        assertEquals(64, r.getMaxExpressionLength());
+        StringBuilder buf = new StringBuilder();
+        char[] cbuf = new char[1024];
+        int read;
+        while ((read = r.read(cbuf)) > -1) {
+            buf.append(cbuf, 0, read);
+        }
+
+        assertEquals("start ${" + garbage + " jason end", buf.toString());
+    }
+
+    @Test
+    void expressionWithinLimitIsInterpolated() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+
+        Interpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        InterpolatorFilterReader r = new InterpolatorFilterReader(new StringReader("${name} ${name}x"), interpolator);
+        r.setMaxExpressionLength("${name}".length());
+        StringBuilder buf = new StringBuilder();
+        int ch;
+        while ((ch = r.read()) != -1) {
+            buf.append((char) ch);
+        }
+
+        assertEquals("jason jasonx", buf.toString());
+    }
+
+    @Test
+    void interpolateWithPrefixPatternIsHonored() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+
+        Interpolator interpolator = new StringSearchInterpolator() {
+            @Override
+            public String interpolate(String input, String thisPrefixPattern, RecursionInterceptor recursionInterceptor)
+                    throws InterpolationException {
+                return "prefixed " + super.interpolate(input, thisPrefixPattern, recursionInterceptor);
+            }
+        };
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        InterpolatorFilterReader r = new InterpolatorFilterReader(new StringReader("${name}"), interpolator);
+        assertEquals("prefixed jason", read(r));
+
+        r = new InterpolatorFilterReader(new StringReader("${name}"), interpolator);
+        r.setInterpolateWithPrefixPattern(false);
+        assertEquals("jason", read(r));
+    }
+
+    private static String read(InterpolatorFilterReader r) throws Exception {
+        StringBuilder buf = new StringBuilder();
+        int ch;
+        while ((ch = r.read()) != -1) {
+            buf.append((char) ch);
+        }
+        return buf.toString();
+    }
+
     // ----------------------------------------------------------------------
     //
     // ----------------------------------------------------------------------
@@ -0,0 +1,110 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LazyValueSourceTest {
+
+    @Test
+    void callSuppliersOnlyWhenReferenced() throws Exception {
+        AtomicInteger timestamps = new AtomicInteger();
+        AtomicInteger checksums = new AtomicInteger();
+        Map<String, Supplier<?>> suppliers = new LinkedHashMap<>();
+        suppliers.put("build.timestamp", () -> "2024-01-01 " + timestamps.incrementAndGet());
+        suppliers.put("build.checksum", () -> "sha" + checksums.incrementAndGet());
+        suppliers.put("host.name", () -> "localhost");
+        LazyValueSource source = new LazyValueSource(suppliers);
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(source);
+
+        assertEquals("built 2024-01-01 1", interpolator.interpolate("built ${build.timestamp}"));
+        assertEquals("2024-01-01 1 on localhost", interpolator.interpolate("${build.timestamp} on ${host.name}"));
+        assertNull(source.getValue("unknown"));
+
+        assertEquals(1, timestamps.get());
+        assertEquals(0, checksums.get());
+        assertEquals(Arrays.asList("build.checksum"), new ArrayList<>(source.getUnusedExpressions()));
+    }
+
+    @Test
+    void callSupplierOnceUnderContention() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        Map<String, Supplier<?>> suppliers = new LinkedHashMap<>();
+        suppliers.put("expensive", () -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "value";
+        });
+        final LazyValueSource source = new LazyValueSource(suppliers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Callable<Object>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(() -> source.getValue("expensive"));
+            }
+            for (Future<Object> value : executor.invokeAll(tasks)) {
+                assertEquals("value", value.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failedSupplierIsCalledAgain() {
+        final AtomicInteger calls = new AtomicInteger();
+        Map<String, Supplier<?>> suppliers = new LinkedHashMap<>();
+        suppliers.put("flaky", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("not yet");
+            }
+            return "value";
+        });
+        LazyValueSource source = new LazyValueSource(suppliers);
+
+        assertThrows(IllegalStateException.class, () -> source.getValue("flaky"));
+        assertEquals(1, source.getUnusedExpressions().size());
+        assertEquals("value", source.getValue("flaky"));
+        assertEquals("value", source.getValue("flaky"));
+        assertEquals(2, calls.get());
+        assertEquals(0, source.getUnusedExpressions().size());
+    }
+}
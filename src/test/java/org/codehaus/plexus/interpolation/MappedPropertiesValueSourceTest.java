@@ -0,0 +1,123 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MappedPropertiesValueSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decodeLikeProperties() throws Exception {
+        String content = "# comment \\\n"
+                + "! another comment\n"
+                + "\n"
+                + "   simple = value\n"
+                + "colon:value with spaces   \n"
+                + "spaced key\n"
+                + "escaped\\ key\\=x = \\tvalue\\u0041\\\\\r\n"
+                + "continued = first \\\r\n"
+                + "    second\\\n"
+                + "  third\n"
+                + "empty=\n"
+                + "=no key\n"
+                + "duplicate=first\n"
+                + "duplicate=second\n"
+                + "latin=caf\u00e9\n"
+                + "last=no newline \\";
+
+        MappedPropertiesValueSource source = map(content.getBytes(StandardCharsets.ISO_8859_1), false);
+        Properties expected = new Properties();
+        expected.load(new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertEquals(expected.size(), source.size());
+        for (String key : expected.stringPropertyNames()) {
+            assertEquals(expected.getProperty(key), source.getValue(key), key);
+        }
+        assertEquals("first secondthird", source.getValue("continued"));
+        assertEquals("\tvalueA\\", source.getValue("escaped key=x"));
+        assertNull(source.getValue("comment"));
+        assertNull(source.getValue("missing"));
+    }
+
+    @Test
+    void decodeUtf8() throws Exception {
+        String content = "gr\u00fc\u00dfe=h\u00e9llo \ud83d\ude00\nescaped=\\u00e9\n";
+
+        MappedPropertiesValueSource source = map(content.getBytes(StandardCharsets.UTF_8), true);
+
+        assertEquals("h\u00e9llo \ud83d\ude00", source.getValue("gr\u00fc\u00dfe"));
+        assertEquals("\u00e9", source.getValue("escaped"));
+    }
+
+    @Test
+    void matchPropertiesOnRandomContent() throws Exception {
+        String[] parts = {"a", "b", "k", "=", ":", " ", "\t", "\\", "\n", "\r", "#", "!", "\\u0041", "\u00e9"};
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int j = random.nextInt(40); j > 0; j--) {
+                content.append(parts[random.nextInt(parts.length)]);
+            }
+
+            byte[] bytes = content.toString().getBytes(StandardCharsets.ISO_8859_1);
+            Properties expected = new Properties();
+            expected.load(new ByteArrayInputStream(bytes));
+            MappedPropertiesValueSource source = map(bytes, false);
+
+            assertEquals(expected.size(), source.size(), content.toString());
+            for (String key : expected.stringPropertyNames()) {
+                assertEquals(expected.getProperty(key), source.getValue(key), content.toString());
+            }
+        }
+    }
+
+    @Test
+    void interpolateFromMappedFile() throws Exception {
+        String content = "name=jason\ngreeting=hello ${name}\n";
+        Properties expected = new Properties();
+        expected.load(new StringReader(content));
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(map(content.getBytes(StandardCharsets.ISO_8859_1), false));
+
+        assertEquals("hello jason!", interpolator.interpolate("${greeting}!"));
+    }
+
+    private MappedPropertiesValueSource map(byte[] content, boolean utf8) throws IOException {
+        Path file = Files.createTempFile(dir, "values", ".properties");
+        Files.write(file, content);
+        return utf8
+                ? new MappedPropertiesValueSource(file, StandardCharsets.UTF_8)
+                : new MappedPropertiesValueSource(file);
+    }
+}
@@ -76,4 +76,62 @@ class PrefixAwareRecursionInterceptorTest {
 
         assertFalse(receptor.hasRecursiveExpression(expr));
     }
+
+    @Test
+    void expressionCycleListsNakedExpressions() {
+        PrefixAwareRecursionInterceptor receptor =
+                new PrefixAwareRecursionInterceptor(Arrays.asList("prefix.", "other."));
+
+        receptor.expressionResolutionStarted("prefix.first");
+        receptor.expressionResolutionStarted("other.second");
+        receptor.expressionResolutionStarted("third");
+
+        assertEquals("[second, third]", receptor.getExpressionCycle("prefix.second").toString());
+        assertEquals("[first, second, third]", receptor.getExpressionCycle("first").toString());
+        assertEquals(Collections.EMPTY_LIST, receptor.getExpressionCycle("fourth"));
+    }
+
+    @Test
+    void ignoreUnprefixedExpressionsWhenNotWatched() {
+        PrefixAwareRecursionInterceptor receptor =
+                new PrefixAwareRecursionInterceptor(Collections.singleton("prefix."), false);
+
+        receptor.expressionResolutionStarted("first");
+        receptor.expressionResolutionStarted("prefix.second");
+
+        assertFalse(receptor.hasRecursiveExpression("first"));
+        assertTrue(receptor.hasRecursiveExpression("prefix.second"));
+        assertEquals(Collections.EMPTY_LIST, receptor.getExpressionCycle("first"));
+        assertEquals("[second]", receptor.getExpressionCycle("prefix.second").toString());
+
+        receptor.expressionResolutionFinished("prefix.second");
+        receptor.expressionResolutionFinished("first");
+
+        assertFalse(receptor.hasRecursiveExpression("prefix.second"));
+    }
+
+    @Test
+    void trackDeeplyNestedExpressions() {
+        PrefixAwareRecursionInterceptor receptor =
+                new PrefixAwareRecursionInterceptor(Collections.singleton("prefix."));
+
+        for (int i = 0; i < 100; i++) {
+            receptor.expressionResolutionStarted("prefix.expr" + i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(receptor.hasRecursiveExpression("expr" + i));
+        }
+
+        for (int i = 99; i >= 50; i--) {
+            receptor.expressionResolutionFinished("prefix.expr" + i);
+        }
+
+        assertTrue(receptor.hasRecursiveExpression("prefix.expr49"));
+        assertFalse(receptor.hasRecursiveExpression("prefix.expr50"));
+
+        receptor.clear();
+
+        assertFalse(receptor.hasRecursiveExpression("prefix.expr0"));
+    }
 }
@@ -0,0 +1,121 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReloadingPropertiesValueSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reloadBumpsVersionOnlyWhenValuesChange() throws Exception {
+        Path file = dir.resolve("values.properties");
+        write(file, "name=jason\n");
+        ReloadingPropertiesValueSource source = new ReloadingPropertiesValueSource(file);
+        long version = source.getVersion();
+        assertEquals("jason", source.getValue("name"));
+
+        write(file, "# same values\nname = jason\n");
+        assertFalse(source.reload());
+        assertEquals(version, source.getVersion());
+
+        write(file, "name=brett\n");
+        assertTrue(source.reload());
+        assertEquals(version + 1, source.getVersion());
+        assertEquals("brett", source.getValue("name"));
+
+        Files.delete(file);
+        assertTrue(source.reload());
+        assertNull(source.getValue("name"));
+    }
+
+    @Test
+    void watchPicksUpChanges() throws Exception {
+        Path file = dir.resolve("values.properties");
+        write(file, "name=jason\n");
+        try (ReloadingPropertiesValueSource source = new ReloadingPropertiesValueSource(file)) {
+            source.watch(20, TimeUnit.MILLISECONDS);
+
+            write(file, "name=brett\n");
+            // make sure the modification time differs on file systems with a coarse resolution
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!"brett".equals(source.getValue("name")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("brett", source.getValue("name"));
+        }
+    }
+
+    @Test
+    void cachedAnswersDependingOnReloadedValuesAreResolvedAgain() throws Exception {
+        Path file = dir.resolve("values.properties");
+        write(file, "name=jason\n");
+        ReloadingPropertiesValueSource reloading = new ReloadingPropertiesValueSource(file);
+
+        final List<String> lookups = new ArrayList<>();
+        final Map<String, String> fixed = new HashMap<>();
+        fixed.put("greeting", "hello ${name}");
+        fixed.put("static", "unchanged");
+        fixed.put("later", "${title}");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setCacheAnswers(true);
+        interpolator.addValueSource(new AbstractValueSource(false) {
+            @Override
+            public Object getValue(String expression) {
+                lookups.add(expression);
+                return fixed.get(expression);
+            }
+        });
+        interpolator.addValueSource(reloading);
+
+        assertEquals("hello jason, unchanged, ${title}", interpolator.interpolate("${greeting}, ${static}, ${later}"));
+        lookups.clear();
+
+        write(file, "name=brett\ntitle=Mr\n");
+        assertTrue(reloading.reload());
+
+        assertEquals("hello brett, unchanged, Mr", interpolator.interpolate("${greeting}, ${static}, ${later}"));
+        // only the answers that consulted the file are resolved again
+        assertEquals(Arrays.asList("greeting", "name", "later", "title"), lookups);
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,87 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimpleRecursionInterceptorTest {
+
+    @Test
+    void findExpression() {
+        SimpleRecursionInterceptor receptor = new SimpleRecursionInterceptor();
+
+        receptor.expressionResolutionStarted("first");
+
+        assertTrue(receptor.hasRecursiveExpression("first"));
+        assertFalse(receptor.hasRecursiveExpression("second"));
+
+        receptor.expressionResolutionFinished("first");
+
+        assertFalse(receptor.hasRecursiveExpression("first"));
+    }
+
+    @Test
+    void expressionCycleStartsAtFirstOccurrence() {
+        SimpleRecursionInterceptor receptor = new SimpleRecursionInterceptor();
+
+        receptor.expressionResolutionStarted("a");
+        receptor.expressionResolutionStarted("b");
+        receptor.expressionResolutionStarted("c");
+
+        assertEquals(Arrays.asList("b", "c"), receptor.getExpressionCycle("b"));
+        assertEquals(Collections.EMPTY_LIST, receptor.getExpressionCycle("d"));
+    }
+
+    @Test
+    void keepTrackingExpressionStartedTwice() {
+        SimpleRecursionInterceptor receptor = new SimpleRecursionInterceptor();
+
+        receptor.expressionResolutionStarted("a");
+        receptor.expressionResolutionStarted("a");
+        receptor.expressionResolutionFinished("a");
+
+        assertTrue(receptor.hasRecursiveExpression("a"));
+
+        receptor.expressionResolutionFinished("a");
+
+        assertFalse(receptor.hasRecursiveExpression("a"));
+    }
+
+    @Test
+    void trackDeeplyNestedExpressions() {
+        SimpleRecursionInterceptor receptor = new SimpleRecursionInterceptor();
+
+        for (int i = 0; i < 100; i++) {
+            receptor.expressionResolutionStarted("expr" + i);
+        }
+
+        assertTrue(receptor.hasRecursiveExpression("expr0"));
+        assertEquals(3, receptor.getExpressionCycle("expr97").size());
+
+        receptor.clear();
+
+        assertFalse(receptor.hasRecursiveExpression("expr0"));
+        assertEquals(Collections.EMPTY_LIST, receptor.getExpressionCycle("expr0"));
+    }
+}
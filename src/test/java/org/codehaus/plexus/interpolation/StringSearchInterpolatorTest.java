@@ -1,17 +1,27 @@
 package org.codehaus.plexus.interpolation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import org.codehaus.plexus.interpolation.os.OperatingSystemUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class StringSearchInterpolatorTest {
@@ -474,6 +484,78 @@ public class StringSearchInterpolatorTest {
         assertEquals(0, interpolator.getExistingCallCount());
     }
 
+    @Test
+    void exponentialExpansionExceedsOutputLimit() throws Exception {
+        Properties p = new Properties();
+        for (int i = 0; i < 30; i++) {
+            p.setProperty("lol" + i, "${lol" + (i + 1) + "}${lol" + (i + 1) + "}");
+        }
+        p.setProperty("lol30", "lol");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setCacheAnswers(true);
+        interpolator.setMaxOutputLength(10000);
+        interpolator.addValueSource(new PropertiesBasedValueSource(p));
+
+        ExpansionLimitExceededException e =
+                assertThrows(ExpansionLimitExceededException.class, () -> interpolator.interpolate("${lol0}"));
+
+        assertEquals("lol0", e.getExpressionPath().get(0));
+    }
+
+    @Test
+    void exponentialExpansionExceedsLookupLimit() throws Exception {
+        Properties p = new Properties();
+        for (int i = 0; i < 30; i++) {
+            p.setProperty("lol" + i, "${lol" + (i + 1) + "}${lol" + (i + 1) + "}");
+        }
+        p.setProperty("lol30", "lol");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setMaxLookups(1000);
+        interpolator.addValueSource(new PropertiesBasedValueSource(p));
+
+        ExpansionLimitExceededException e =
+                assertThrows(ExpansionLimitExceededException.class, () -> interpolator.interpolate("${lol0}"));
+
+        List<String> path = e.getExpressionPath();
+        assertEquals("lol0", path.get(0));
+        assertEquals("${" + path.get(path.size() - 1) + "}", e.getExpression());
+    }
+
+    @Test
+    void outputLimitCoversWholeCall() throws Exception {
+        Properties p = new Properties();
+        p.setProperty("a", "${b}-${b}");
+        p.setProperty("b", "0123");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setMaxOutputLength(10);
+        interpolator.addValueSource(new PropertiesBasedValueSource(p));
+
+        assertEquals("0123-0123", interpolator.interpolate("${a}"));
+        assertThrows(ExpansionLimitExceededException.class, () -> interpolator.interpolate("${a}..."));
+
+        ExpansionLimitExceededException e =
+                assertThrows(ExpansionLimitExceededException.class, () -> interpolator.interpolate("0123456${a}"));
+        assertEquals(Arrays.asList("a", "b"), e.getExpressionPath());
+    }
+
+    @Test
+    void expansionWithinLimits() throws Exception {
+        Properties p = new Properties();
+        p.setProperty("a", "${b}${b}");
+        p.setProperty("b", "xy");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setMaxOutputLength(6);
+        interpolator.setMaxLookups(3);
+        interpolator.addValueSource(new PropertiesBasedValueSource(p));
+
+        assertEquals("xyxy", interpolator.interpolate("${a}"));
+        assertEquals("xyxy", interpolator.interpolate("${a}"));
+    }
+
     public String getVar() {
         return "testVar";
     }
@@ -511,4 +593,368 @@ public class StringSearchInterpolatorTest {
             return name;
         }
     }
+
+    @Test
+    void resolveExpressionMatchesInterpolate() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("alias", "${name}");
+        m.put("empty", "");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        String[] inputs = {
+            "${name}", "${.name}", "${alias}", "${empty}", "${unknown}", "${}", "${name", "name}", "${name} ${name}",
+            "x${name}", "${name}x", "${a ${name}", "plain text", ""
+        };
+        for (String input : inputs) {
+            assertEquals(
+                    interpolator.interpolate(input, new SimpleRecursionInterceptor()),
+                    interpolator.resolveExpression(input, new SimpleRecursionInterceptor()),
+                    input);
+        }
+        assertEquals("", interpolator.resolveExpression(null, new SimpleRecursionInterceptor()));
+    }
+
+    @Test
+    void resolveExpressionDetectsCycles() {
+        Map<String, String> m = new HashMap<>();
+        m.put("a", "${b}");
+        m.put("b", "${a}");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        assertThrows(
+                InterpolationCycleException.class,
+                () -> interpolator.resolveExpression("${a}", new SimpleRecursionInterceptor()));
+    }
+
+    @Test
+    void batchLookupsFetchEachLevelOnce() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("greeting", "hello ${name} from ${place}");
+        m.put("place", "${city}");
+        m.put("city", "Paris");
+        RecordingBatchValueSource batch = new RecordingBatchValueSource(m);
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setBatchLookups(true);
+        interpolator.addValueSource(batch);
+
+        assertEquals(
+                "hello jason from Paris, jason ${unknown}",
+                interpolator.interpolate("${greeting}, ${name} ${unknown}"));
+
+        // one call per input or value with expressions not seen before; no per-expression lookups
+        assertEquals(
+                Arrays.asList(
+                        Arrays.asList("greeting", "name", "unknown"),
+                        Collections.singletonList("place"),
+                        Collections.singletonList("city")),
+                batch.batches);
+        assertEquals(Collections.emptyList(), batch.lookups);
+    }
+
+    @Test
+    void batchLookupsKeepValueSourceOrder() throws Exception {
+        Map<String, Object> first = new HashMap<>();
+        first.put("a", "first");
+        Map<String, Object> second = new HashMap<>();
+        second.put("a", "second");
+        second.put("b", "second");
+        Map<String, Object> third = new HashMap<>();
+        third.put("b", "third");
+        third.put("c", "third");
+        RecordingBatchValueSource batch = new RecordingBatchValueSource(second);
+        RecordingBatchValueSource otherBatch = new RecordingBatchValueSource(third);
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setBatchLookups(true);
+        interpolator.addValueSource(new MapBasedValueSource(first));
+        interpolator.addValueSource(batch);
+        interpolator.addValueSource(otherBatch);
+
+        assertEquals("first second third", interpolator.interpolate("${a} ${b} ${c}"));
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), batch.batches);
+        assertEquals(Collections.singletonList(Collections.singletonList("c")), otherBatch.batches);
+        assertEquals(Collections.emptyList(), batch.lookups);
+    }
+
+    @Test
+    void batchLookupsMatchPerExpressionLookups() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("alias", "${name}");
+        m.put("self", "${self}");
+
+        String[] inputs = {"${name} ${.alias} \\${name} ${unknown} ${name", "${alias}${alias}", "plain", ""};
+        for (String input : inputs) {
+            StringSearchInterpolator expected = new StringSearchInterpolator();
+            expected.setEscapeString("\\");
+            expected.addValueSource(new MapBasedValueSource(m));
+
+            StringSearchInterpolator interpolator = new StringSearchInterpolator();
+            interpolator.setEscapeString("\\");
+            interpolator.setBatchLookups(true);
+            interpolator.addValueSource(new RecordingBatchValueSource(m));
+
+            assertEquals(expected.interpolate(input), interpolator.interpolate(input), input);
+        }
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setBatchLookups(true);
+        interpolator.addValueSource(new RecordingBatchValueSource(m));
+        assertThrows(InterpolationCycleException.class, () -> interpolator.interpolate("${self}"));
+    }
+
+    @Test
+    void interpolateAsyncLooksUpExpressionsConcurrently() throws Exception {
+        // the lookups of x and y each wait until both have started, so making them one after the other would fail
+        final CountDownLatch started = new CountDownLatch(2);
+        AsyncValueSource slow = new FunctionAsyncValueSource(expression -> CompletableFuture.supplyAsync(() -> {
+            started.countDown();
+            try {
+                return started.await(5, TimeUnit.SECONDS) ? expression.toUpperCase() : null;
+            } catch (InterruptedException e) {
+                return null;
+            }
+        }));
+        Map<String, Object> m = new HashMap<>();
+        m.put("a", "${b}-${c}");
+        m.put("b", "local");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+        interpolator.addValueSource(slow);
+
+        assertEquals("local-C X Y", interpolator.interpolateAsync("${a} ${x} ${y}").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void interpolateAsyncAsksOtherValueSourcesOneAtATime() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final Thread caller = Thread.currentThread();
+        final List<String> askedOnCaller = Collections.synchronizedList(new ArrayList<>());
+        class SlowValueSource extends AbstractValueSource {
+            private final String suffix;
+
+            SlowValueSource(String suffix) {
+                super(false);
+                this.suffix = suffix;
+            }
+
+            @Override
+            public Object getValue(String expression) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                if (Thread.currentThread() == caller) {
+                    askedOnCaller.add(expression + suffix);
+                }
+                return expression.startsWith(suffix) ? expression + suffix : null;
+            }
+        }
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new SlowValueSource("first"));
+        interpolator.addValueSource(new FunctionAsyncValueSource(
+                expression -> CompletableFuture.supplyAsync(() -> expression.startsWith("async") ? "A" : null)));
+        interpolator.addValueSource(new SlowValueSource("last"));
+
+        CompletableFuture<String> result = interpolator.interpolateAsync("${first1} ${async1} ${last1} ${last2}");
+        assertEquals(
+                Arrays.asList("first1first", "async1first", "last1first", "last2first"),
+                new ArrayList<>(askedOnCaller));
+        assertEquals("first1first A last1last last2last", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, maxInFlight.get());
+    }
+
+    @Test
+    void interpolateAsyncMatchesInterpolate() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("alias", "${name}");
+        AsyncValueSource async =
+                new FunctionAsyncValueSource(expression -> CompletableFuture.completedFuture(m.get(expression)));
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setEscapeString("\\");
+        interpolator.addValueSource(async);
+
+        String[] inputs = {"${name} ${.alias} \\${name} ${unknown} ${name", "plain", ""};
+        for (String input : inputs) {
+            assertEquals(interpolator.interpolate(input), interpolator.interpolateAsync(input).get(), input);
+        }
+        assertEquals("", interpolator.interpolateAsync(null).get());
+    }
+
+    @Test
+    void interpolateAsyncDetectsCycles() {
+        Map<String, String> m = new HashMap<>();
+        m.put("a", "${b}");
+        m.put("b", "${a}");
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        ExecutionException e = assertThrows(
+                ExecutionException.class, () -> interpolator.interpolateAsync("${a} ${b}").get());
+        assertTrue(e.getCause() instanceof InterpolationCycleException);
+    }
+
+    @Test
+    void cancelledDeadlineStopsBeforeNextLookup() {
+        final InterpolationDeadline deadline = InterpolationDeadline.cancellable();
+        final List<String> lookups = new ArrayList<>();
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new AbstractValueSource(false) {
+            @Override
+            public Object getValue(String expression) {
+                lookups.add(expression);
+                if ("b".equals(expression)) {
+                    deadline.cancel();
+                }
+                return expression;
+            }
+        });
+
+        InterpolationCancelledException e = assertThrows(
+                InterpolationCancelledException.class,
+                () -> interpolator.interpolate("${a} ${b} ${c}", new SimpleRecursionInterceptor(), deadline));
+        assertEquals("${c}", e.getExpression());
+        assertEquals(Collections.singletonList("c"), e.getExpressionPath());
+        assertEquals(Arrays.asList("a", "b"), lookups);
+    }
+
+    @Test
+    void deadlineStopsWaitingForAsyncValueSource() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("outer", "before ${stuck}");
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+        interpolator.addValueSource(new FunctionAsyncValueSource(expression -> new CompletableFuture<>()));
+
+        InterpolationCancelledException e = assertThrows(
+                InterpolationCancelledException.class,
+                () -> interpolator.interpolate(
+                        "${outer}",
+                        new SimpleRecursionInterceptor(),
+                        InterpolationDeadline.after(100, TimeUnit.MILLISECONDS)));
+        assertEquals("${stuck}", e.getExpression());
+        assertEquals(Arrays.asList("outer", "stuck"), e.getExpressionPath());
+    }
+
+    @Test
+    void interpolateAsyncFailsFastWhenDeadlineExpires() throws Exception {
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new FunctionAsyncValueSource(expression -> "fast".equals(expression)
+                ? CompletableFuture.completedFuture("done")
+                : new CompletableFuture<>()));
+
+        InterpolationDeadline deadline = InterpolationDeadline.after(100, TimeUnit.MILLISECONDS);
+        CompletableFuture<String> result =
+                interpolator.interpolateAsync("${fast} ${stuck}", new SimpleRecursionInterceptor(), deadline);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof InterpolationCancelledException);
+        assertEquals("${stuck}", ((InterpolationCancelledException) e.getCause()).getExpression());
+    }
+
+    @Test
+    void invalidateEvictsOnlyDependentAnswers() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("a", "${b}-x");
+        m.put("b", "${c}");
+        m.put("c", "1");
+        m.put("d", "2");
+        RecordingBatchValueSource source = new RecordingBatchValueSource(m);
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setCacheAnswers(true);
+        interpolator.addValueSource(source);
+        assertEquals("1-x 2", interpolator.interpolate("${a} ${d}"));
+
+        m.put("c", "3");
+        source.lookups.clear();
+        assertEquals(3, interpolator.invalidate("c"));
+        assertEquals(0, interpolator.invalidate("c"));
+        assertEquals("3-x 2", interpolator.interpolate("${a} ${d}"));
+        assertEquals(Arrays.asList("a", "b", "c"), source.lookups);
+        assertEquals(3, interpolator.getInvalidationCount());
+
+        assertEquals(4, interpolator.invalidate(source));
+        assertEquals(7, interpolator.getInvalidationCount());
+    }
+
+    @Test
+    void invalidateEvictsAnswersReferencingUnresolvedExpressions() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("a", "${missing}");
+        RecordingBatchValueSource source = new RecordingBatchValueSource(m);
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.setCacheAnswers(true);
+        interpolator.addValueSource(source);
+        assertEquals("${missing}", interpolator.interpolate("${a}"));
+
+        m.put("missing", "found");
+        assertEquals(1, interpolator.invalidate("missing"));
+        assertEquals("found", interpolator.interpolate("${a}"));
+        assertEquals(1, interpolator.getInvalidationCount());
+    }
+
+    private static class FunctionAsyncValueSource extends AbstractValueSource implements AsyncValueSource {
+
+        private final Function<String, CompletableFuture<Object>> lookup;
+
+        FunctionAsyncValueSource(Function<String, CompletableFuture<Object>> lookup) {
+            super(false);
+            this.lookup = lookup;
+        }
+
+        @Override
+        public CompletableFuture<Object> getValueAsync(String expression) {
+            return lookup.apply(expression);
+        }
+    }
+
+    private static class RecordingBatchValueSource extends AbstractValueSource implements BatchValueSource {
+
+        private final Map<String, Object> values;
+
+        private final List<List<String>> batches = new ArrayList<>();
+
+        private final List<String> lookups = new ArrayList<>();
+
+        RecordingBatchValueSource(Map<String, Object> values) {
+            super(false);
+            this.values = values;
+        }
+
+        @Override
+        public Object getValue(String expression) {
+            lookups.add(expression);
+            return values.get(expression);
+        }
+
+        @Override
+        public Map<String, Object> getValues(Collection<String> expressions) {
+            batches.add(new ArrayList<>(expressions));
+            Map<String, Object> found = new HashMap<>();
+            for (String expression : expressions) {
+                if (values.containsKey(expression)) {
+                    found.put(expression, values.get(expression));
+                }
+            }
+            return found;
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package org.codehaus.plexus.interpolation;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StringTableValueSourceTest {
+
+    @Test
+    void lookUpLatin1Entries() throws Exception {
+        Properties p = new Properties();
+        p.setProperty("name", "jason");
+        p.setProperty("greeting", "hello ${name}");
+        p.setProperty("caf\u00e9", "cr\u00e8me");
+        p.setProperty("", "empty key");
+        p.put(42, "not a String key");
+
+        StringTableValueSource source = new StringTableValueSource(p);
+
+        assertEquals(4, source.size());
+        assertEquals("cr\u00e8me", source.getValue("caf\u00e9"));
+        assertEquals("empty key", source.getValue(""));
+        assertNull(source.getValue("42"));
+        assertNull(source.getValue("nam"));
+        assertNull(source.getValue(null));
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(source);
+        assertEquals("hello jason!", interpolator.interpolate("${greeting}!"));
+    }
+
+    @Test
+    void lookUpUtf8Entries() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("smiley", "\ud83d\ude00");
+        values.put("\u4e2d\u6587", "chinese");
+        values.put("unpaired", "\ud83d!");
+        values.put("number", 42);
+        values.put("null", null);
+
+        StringTableValueSource source = new StringTableValueSource(values);
+
+        assertEquals("\ud83d\ude00", source.getValue("smiley"));
+        assertEquals("chinese", source.getValue("\u4e2d\u6587"));
+        assertEquals("?!", source.getValue("unpaired"));
+        assertEquals("42", source.getValue("number"));
+        assertNull(source.getValue("null"));
+        assertEquals(new ArrayList<>(values.keySet()).subList(0, 4), new ArrayList<>(source.getEntries().keySet()));
+    }
+
+    @Test
+    void matchHashMapOnRandomEntries() {
+        Random random = new Random(4);
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            values.put(randomString(random), randomString(random));
+        }
+
+        StringTableValueSource source = new StringTableValueSource(values);
+
+        assertEquals(values.size(), source.size());
+        assertEquals(values, source.getEntries());
+        for (int i = 0; i < 10000; i++) {
+            String key = randomString(random);
+            assertEquals(values.get(key), source.getValue(key), key);
+        }
+    }
+
+    @Test
+    void footprintPerEntry() {
+        int entries = 10000;
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            values.put("generated.property." + i, "value-" + i);
+        }
+        long characters = 0;
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            characters += entry.getKey().length() + entry.getValue().length();
+        }
+
+        StringTableValueSource table = new StringTableValueSource(values);
+
+        long bytesPerEntry = table.getSizeInBytes() / entries;
+        // the packed characters, two length bytes and at most 8 / 3 table slots of 8 bytes per entry; a HashMap
+        // entry with its two Strings takes over 100 bytes on top of the characters
+        assertTrue(bytesPerEntry <= characters / entries + 2 + 22, "bytes per entry: " + bytesPerEntry);
+        for (int i = 0; i < entries; i += 97) {
+            assertEquals("value-" + i, table.getValue("generated.property." + i));
+        }
+    }
+
+    private static String randomString(Random random) {
+        char[] chars = new char[random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            // mostly ASCII, some Latin-1, some beyond
+            int kind = random.nextInt(10);
+            chars[i] = (char) (kind < 7 ? 'a' + random.nextInt(4) : kind < 9 ? 0xE0 + random.nextInt(4) : 0x4E2D);
+        }
+        return new String(chars);
+    }
+}
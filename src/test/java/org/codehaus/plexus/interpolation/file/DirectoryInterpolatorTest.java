@@ -0,0 +1,217 @@
+package org.codehaus.plexus.interpolation.file;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.codehaus.plexus.interpolation.fixed.InterpolationCycleException;
+import org.codehaus.plexus.interpolation.fixed.MapBasedValueSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryInterpolatorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void interpolateDirectoryTree() throws Exception {
+        Path source = dir.resolve("source");
+        for (int i = 0; i < 200; i++) {
+            write(source.resolve(path(i)), "${name} " + i);
+        }
+        write(source.resolve("root.txt"), "${name} at the root");
+        write(source.resolve("skipped.bin"), "${name}");
+
+        Map<String, String> context = new HashMap<>();
+        context.put("name", "jason");
+        DirectoryInterpolator directoryInterpolator =
+                new DirectoryInterpolator(FixedStringSearchInterpolator.create(new MapBasedValueSource(context)));
+        directoryInterpolator.setIncludes(Arrays.asList("*.txt", "**/*.txt"));
+        directoryInterpolator.setParallelism(4);
+
+        Path target = dir.resolve("target");
+        DirectoryInterpolationResult result = directoryInterpolator.interpolate(source, target);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(201, result.getFiles().size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals("jason " + i, read(target.resolve(path(i))));
+        }
+        assertEquals("jason at the root", read(target.resolve("root.txt")));
+        assertFalse(Files.exists(target.resolve("skipped.bin")));
+        assertTrue(result.getTotalFileNanos() > 0);
+        assertEquals(0, result.getWritesAvoided());
+
+        directoryInterpolator.setWriteIfChanged(true);
+        write(source.resolve("root.txt"), "${name} moved the root");
+        result = directoryInterpolator.interpolate(source, target);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(200, result.getWritesAvoided());
+        assertEquals("jason moved the root", read(target.resolve("root.txt")));
+    }
+
+    @Test
+    void reportFailuresPerFile() throws Exception {
+        Path source = dir.resolve("source");
+        write(source.resolve("good.txt"), "${name}");
+        write(source.resolve("cycle.txt"), "${a}");
+
+        Map<String, String> context = new HashMap<>();
+        context.put("name", "jason");
+        context.put("a", "${b}");
+        context.put("b", "${a}");
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            DirectoryInterpolator directoryInterpolator =
+                    new DirectoryInterpolator(FixedStringSearchInterpolator.create(new MapBasedValueSource(context)));
+            directoryInterpolator.setExecutor(executor);
+
+            Path target = dir.resolve("target");
+            DirectoryInterpolationResult result = directoryInterpolator.interpolate(source, target);
+
+            assertFalse(result.isSuccessful());
+            assertEquals(1, result.getFailures().size());
+            assertEquals(source.resolve("cycle.txt"), result.getFailures().get(0).getSource());
+            assertTrue(result.getFailures().get(0).getError() instanceof InterpolationCycleException);
+            assertEquals("jason", read(target.resolve("good.txt")));
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void skipFilesThatAreUpToDateWithTheManifest() throws Exception {
+        Path source = dir.resolve("source");
+        Path target = dir.resolve("target");
+        Path manifest = dir.resolve("state").resolve("manifest.bin");
+        write(source.resolve("name.txt"), "${name}");
+        write(source.resolve("version.txt"), "${version} \\${name}");
+        write(source.resolve("both.txt"), "${name} ${version}");
+        write(source.resolve("none.txt"), "nothing to see");
+
+        Map<String, String> context = new HashMap<>();
+        context.put("name", "jason");
+        context.put("version", "1.0");
+
+        DirectoryInterpolationResult result = interpolateWithManifest(context, source, target, manifest);
+        assertTrue(result.isSuccessful());
+        assertEquals(0, result.getUpToDateCount());
+        assertTrue(Files.exists(manifest));
+
+        result = interpolateWithManifest(context, source, target, manifest);
+        assertEquals(4, result.getUpToDateCount());
+        assertEquals(4, result.getWritesAvoided());
+
+        context.put("version", "1.1");
+        result = interpolateWithManifest(context, source, target, manifest);
+        assertEquals(2, result.getUpToDateCount());
+        assertEquals("1.1 ${name}", read(target.resolve("version.txt")));
+        assertEquals("jason 1.1", read(target.resolve("both.txt")));
+
+        write(source.resolve("name.txt"), "${name}!");
+        Files.delete(target.resolve("none.txt"));
+        result = interpolateWithManifest(context, source, target, manifest);
+        assertEquals(2, result.getUpToDateCount());
+        assertEquals("jason!", read(target.resolve("name.txt")));
+        assertEquals("nothing to see", read(target.resolve("none.txt")));
+    }
+
+    @Test
+    void manifestIsSpecificToTargetDirectory() throws Exception {
+        Path source = dir.resolve("source");
+        Path manifest = dir.resolve("manifest.bin");
+        write(source.resolve("name.txt"), "${name}");
+
+        Map<String, String> context = new HashMap<>();
+        context.put("name", "jason");
+
+        interpolateWithManifest(context, source, dir.resolve("target"), manifest);
+        write(dir.resolve("other").resolve("name.txt"), "jason");
+        DirectoryInterpolationResult result = interpolateWithManifest(context, source, dir.resolve("other"), manifest);
+        assertEquals(0, result.getUpToDateCount());
+    }
+
+    @Test
+    void unreadableManifestIsIgnored() throws Exception {
+        Path source = dir.resolve("source");
+        Path target = dir.resolve("target");
+        Path manifest = dir.resolve("manifest.bin");
+        StringBuilder longExpression = new StringBuilder();
+        while (longExpression.length() < 70000) {
+            longExpression.append("very.long.expression.");
+        }
+        write(source.resolve("name.txt"), "${name} ${" + longExpression + "}");
+
+        Map<String, String> context = new HashMap<>();
+        context.put("name", "jason");
+
+        DirectoryInterpolationResult result = interpolateWithManifest(context, source, target, manifest);
+        assertTrue(result.isSuccessful());
+        result = interpolateWithManifest(context, source, target, manifest);
+        assertEquals(1, result.getUpToDateCount());
+
+        byte[] stored = Files.readAllBytes(manifest);
+        Files.write(manifest, Arrays.copyOf(stored, stored.length / 2));
+        result = interpolateWithManifest(context, source, target, manifest);
+        assertTrue(result.isSuccessful());
+        assertEquals(0, result.getUpToDateCount());
+
+        stored[5] = (byte) 0x7f;
+        Files.write(manifest, stored);
+        result = interpolateWithManifest(context, source, target, manifest);
+        assertTrue(result.isSuccessful());
+        assertEquals(0, result.getUpToDateCount());
+    }
+
+    private static DirectoryInterpolationResult interpolateWithManifest(
+            Map<String, String> context, Path source, Path target, Path manifest) throws Exception {
+        DirectoryInterpolator directoryInterpolator = new DirectoryInterpolator(
+                FixedStringSearchInterpolator.create(new MapBasedValueSource(new HashMap<>(context))));
+        directoryInterpolator.setEscapeString("\\");
+        directoryInterpolator.setManifestFile(manifest);
+        return directoryInterpolator.interpolate(source, target);
+    }
+
+    private static String path(int i) {
+        return "dir" + (i % 7) + "/sub" + (i % 3) + "/file" + i + ".txt";
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,255 @@
+package org.codehaus.plexus.interpolation.file;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.codehaus.plexus.interpolation.InterpolationCycleException;
+import org.codehaus.plexus.interpolation.MapBasedValueSource;
+import org.codehaus.plexus.interpolation.StringSearchInterpolator;
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileInterpolatorTest {
+
+    @TempDir
+    Path dir;
+
+    private Map<String, String> context;
+
+    private StringSearchInterpolator interpolator;
+
+    @BeforeEach
+    void setUp() {
+        context = new HashMap<>();
+        context.put("name", "jason");
+        context.put("greeting", "hello ${name}");
+        context.put("unicode", "\u00e9t\u00e9 \u2603");
+
+        interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(context));
+    }
+
+    @Test
+    void interpolateFile() throws Exception {
+        Path source = write("source.txt", "${greeting}, ${unknown} and ${unicode} \\${name}${name");
+        Path target = dir.resolve("target.txt");
+
+        FileInterpolator fileInterpolator = new FileInterpolator(interpolator);
+        fileInterpolator.setEscapeString("\\");
+        fileInterpolator.interpolate(source, target);
+
+        assertEquals("hello jason, ${unknown} and \u00e9t\u00e9 \u2603 ${name}${name", read(target));
+    }
+
+    @Test
+    void copyFileWithoutExpressions() throws Exception {
+        byte[] bytes = new byte[100000];
+        new Random(1).nextBytes(bytes);
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '$') {
+                bytes[i] = 0;
+            }
+        }
+        Path source = dir.resolve("binary.bin");
+        Files.write(source, bytes);
+        Path target = dir.resolve("copy.bin");
+
+        new FileInterpolator(interpolator).interpolate(source, target);
+
+        assertArrayEquals(bytes, Files.readAllBytes(target));
+    }
+
+    @Test
+    void interpolateLargeFileLikeStringSearchInterpolator() throws Exception {
+        StringBuilder content = new StringBuilder();
+        Random random = new Random(2);
+        String[] parts = {"${name}", "${greeting}", "${unknown}", "$", "{", "}", "text ", "\n", "\u00e9", "${"};
+        while (content.length() < 3 * 1024 * 1024) {
+            content.append(parts[random.nextInt(parts.length)]);
+        }
+        Path source = write("large.txt", content.toString());
+        Path target = dir.resolve("large-target.txt");
+
+        new FileInterpolator(interpolator).interpolate(source, target);
+
+        assertEquals(interpolator.interpolate(content.toString()), read(target));
+    }
+
+    @Test
+    void interpolateInPlaceWithCustomTokensAndCharset() throws Exception {
+        Path source = dir.resolve("latin1.txt");
+        Files.write(source, "@name@ \u00e9 @unicode@".getBytes(StandardCharsets.ISO_8859_1));
+
+        StringSearchInterpolator at = new StringSearchInterpolator("@", "@");
+        at.addValueSource(new MapBasedValueSource(context));
+        FileInterpolator fileInterpolator = new FileInterpolator(at, "@", "@");
+        fileInterpolator.setCharset(StandardCharsets.ISO_8859_1);
+        fileInterpolator.interpolate(source, source);
+
+        assertEquals(
+                "jason \u00e9 \u00e9t\u00e9 ?", new String(Files.readAllBytes(source), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void interpolateWithFixedInterpolator() throws Exception {
+        Path source = write("fixed.txt", "${greeting}!");
+        Path target = dir.resolve("fixed-target.txt");
+
+        FixedStringSearchInterpolator fixed = FixedStringSearchInterpolator.create(
+                new org.codehaus.plexus.interpolation.fixed.MapBasedValueSource(context));
+        new FileInterpolator(fixed.asBasicInterpolator()).interpolate(source, target);
+
+        assertEquals("hello jason!", read(target));
+    }
+
+    @Test
+    void cycleFailsInterpolation() throws Exception {
+        context.put("a", "${b}");
+        context.put("b", "${a}");
+        Path source = write("cycle.txt", "${a}");
+
+        assertThrows(
+                InterpolationCycleException.class,
+                () -> new FileInterpolator(interpolator).interpolate(source, dir.resolve("cycle-target.txt")));
+    }
+
+    @Test
+    void byteLevelScanMatchesDecodingScan() throws Exception {
+        StringBuilder content = new StringBuilder();
+        Random random = new Random(3);
+        String[] parts = {
+            "${name}", "${unicode}", "${unknown}", "\\${name}", "\\", "$", "}", "\u00e9t\u00e9 ", "\u2603\n",
+            "<dependency><groupId>org.codehaus.plexus</groupId><artifactId>plexus-utils</artifactId></dependency>\n"
+        };
+        while (content.length() < 256 * 1024) {
+            content.append(parts[random.nextInt(parts.length)]);
+        }
+        Path source = write("mixed.txt", content.toString());
+
+        FileInterpolator bytes = new FileInterpolator(interpolator);
+        bytes.setEscapeString("\\");
+        FileInterpolator chars = new FileInterpolator(interpolator);
+        chars.setEscapeString("\\");
+        chars.setByteLevelScan(false);
+
+        bytes.interpolate(source, dir.resolve("bytes.txt"));
+        chars.interpolate(source, dir.resolve("chars.txt"));
+
+        assertArrayEquals(Files.readAllBytes(dir.resolve("chars.txt")), Files.readAllBytes(dir.resolve("bytes.txt")));
+    }
+
+    @Test
+    void byteLevelScanKeepsMalformedInput() throws Exception {
+        Path source = dir.resolve("malformed.txt");
+        Files.write(source, new byte[] {'$', '{', 'n', 'a', 'm', 'e', '}', ' ', (byte) 0xff, (byte) 0xc3});
+        Path target = dir.resolve("malformed-target.txt");
+
+        new FileInterpolator(interpolator).interpolate(source, target);
+
+        assertArrayEquals(
+                new byte[] {'j', 'a', 's', 'o', 'n', ' ', (byte) 0xff, (byte) 0xc3}, Files.readAllBytes(target));
+    }
+
+    @Test
+    void writeIfChangedLeavesIdenticalTargetUntouched() throws Exception {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 2 * 1024 * 1024) {
+            content.append("${name} says ${greeting} with ${unicode}\n");
+        }
+        Path source = write("large.txt", content.toString());
+        Path plain = write("plain.txt", "no expressions here");
+
+        FileInterpolator fileInterpolator = new FileInterpolator(interpolator);
+        fileInterpolator.setWriteIfChanged(true);
+        for (Path file : new Path[] {source, plain}) {
+            Path target = dir.resolve("target-" + file.getFileName());
+            assertTrue(fileInterpolator.interpolate(file, target));
+            byte[] expected = Files.readAllBytes(target);
+
+            FileTime past = FileTime.fromMillis(1000000000000L);
+            Files.setLastModifiedTime(target, past);
+            assertFalse(fileInterpolator.interpolate(file, target));
+            assertEquals(past, Files.getLastModifiedTime(target));
+            assertArrayEquals(expected, Files.readAllBytes(target));
+        }
+    }
+
+    @Test
+    void writeIfChangedRewritesDifferentTarget() throws Exception {
+        Path source = write("source.txt", "${name} and ${name}");
+        Path plain = write("plain.txt", "no expressions");
+
+        FileInterpolator fileInterpolator = new FileInterpolator(interpolator);
+        fileInterpolator.setWriteIfChanged(true);
+        String[] previous = {"jason and jasoN", "jason and", "jason and jason and more", "", "Jason and jason"};
+        for (String content : previous) {
+            Path target = write("target.txt", content);
+            assertTrue(fileInterpolator.interpolate(source, target), content);
+            assertEquals("jason and jason", read(target));
+
+            target = write("target.txt", content);
+            assertTrue(fileInterpolator.interpolate(plain, target), content);
+            assertEquals("no expressions", read(target));
+        }
+    }
+
+    @Test
+    void writeIfChangedKeepsTargetWhenInterpolationFails() throws Exception {
+        context.put("cycle", "${cycle}");
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 100000) {
+            content.append("${name} is written before the failure\n");
+        }
+        Path source = write("source.txt", content + "${cycle}");
+        Path target = write("target.txt", "previous content");
+
+        FileInterpolator fileInterpolator = new FileInterpolator(interpolator);
+        fileInterpolator.setWriteIfChanged(true);
+        assertThrows(InterpolationCycleException.class, () -> fileInterpolator.interpolate(source, target));
+
+        assertEquals("previous content", read(target));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,104 @@
+package org.codehaus.plexus.interpolation.fixed;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator.create;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingValueSourceTest {
+
+    @Test
+    void concurrentInterpolationsShareOneLookup() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        FixedValueSource slow = (expression, interpolationState) -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "abc123";
+        };
+        final FixedStringSearchInterpolator interpolator =
+                create(new CoalescingValueSource(slow, 1, TimeUnit.HOURS));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Callable<String>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(() -> interpolator.interpolate("commit ${git.commit}"));
+            }
+            for (Future<String> result : executor.invokeAll(tasks)) {
+                assertEquals("commit abc123", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void concurrentCyclicDefinitionsFail() throws Exception {
+        final Map<String, String> values = new HashMap<>();
+        values.put("a", "${b}");
+        values.put("b", "${a}");
+        // interpolates the values it finds, so its lookups of the referenced expressions are nested in its own
+        final FixedStringSearchInterpolator definitions = create((expression, state) -> values.get(expression));
+        final CountDownLatch bothShared = new CountDownLatch(2);
+        FixedValueSource gate = (expression, interpolationState) -> {
+            bothShared.countDown();
+            try {
+                bothShared.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return definitions.getValue(expression, interpolationState);
+        };
+        final FixedStringSearchInterpolator interpolator = create(new CoalescingValueSource(gate));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> a = executor.submit(() -> interpolator.interpolate("${a}"));
+            Future<String> b = executor.submit(() -> interpolator.interpolate("${b}"));
+            for (Future<String> result : Arrays.asList(a, b)) {
+                ExecutionException e =
+                        assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof InterpolationCycleException, String.valueOf(e.getCause()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -16,12 +16,14 @@ package org.codehaus.plexus.interpolation.fixed;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
 import org.codehaus.plexus.interpolation.FixedInterpolatorValueSource;
+import org.codehaus.plexus.interpolation.InterpolationDeadline;
 import org.codehaus.plexus.interpolation.InterpolationPostProcessor;
 import org.codehaus.plexus.interpolation.StringSearchInterpolator;
 import org.codehaus.plexus.interpolation.os.OperatingSystemUtils;
@@ -482,4 +484,66 @@ public class FixedStringSearchInterpolatorTest {
         }
         return new PropertiesBasedValueSource(p);
     }
+
+    @Test
+    void exponentialExpansionExceedsLimits() {
+        Properties p = new Properties();
+        for (int i = 0; i < 30; i++) {
+            p.setProperty("lol" + i, "${lol" + (i + 1) + "}${lol" + (i + 1) + "}");
+        }
+        p.setProperty("lol30", "lol");
+
+        final FixedStringSearchInterpolator lookupLimited =
+                create(new PropertiesBasedValueSource(p)).withMaxLookups(1000);
+        ExpansionLimitExceededException e =
+                assertThrows(ExpansionLimitExceededException.class, () -> lookupLimited.interpolate("${lol0}"));
+        assertEquals("lol0", e.getExpressionPath().get(0));
+
+        final FixedStringSearchInterpolator outputLimited =
+                create(new PropertiesBasedValueSource(p)).withMaxOutputLength(1000);
+        assertThrows(ExpansionLimitExceededException.class, () -> outputLimited.interpolate("${lol20}"));
+
+        FixedStringSearchInterpolator limited = create(new PropertiesBasedValueSource(p))
+                .withMaxLookups(3)
+                .withMaxOutputLength(6);
+        InterpolationState state = new InterpolationState();
+        assertEquals("lollol", limited.interpolate("${lol29}", state));
+        assertEquals("lollol", limited.interpolate("${lol29}", state));
+    }
+
+    @Test
+    void outputLimitCoversWholeCall() {
+        Properties p = new Properties();
+        p.setProperty("a", "${b}-${b}");
+        p.setProperty("b", "0123");
+
+        final FixedStringSearchInterpolator interpolator =
+                create(new PropertiesBasedValueSource(p)).withMaxOutputLength(10);
+
+        assertEquals("0123-0123", interpolator.interpolate("${a}"));
+        assertThrows(ExpansionLimitExceededException.class, () -> interpolator.interpolate("${a}..."));
+
+        ExpansionLimitExceededException e =
+                assertThrows(ExpansionLimitExceededException.class, () -> interpolator.interpolate("0123456${a}"));
+        assertEquals(Arrays.asList("a", "b"), e.getExpressionPath());
+    }
+
+    @Test
+    void cancelledDeadlineStopsInterpolation() {
+        Map<String, String> m = new HashMap<>();
+        m.put("a", "${b}");
+        m.put("b", "value");
+        FixedStringSearchInterpolator interpolator = create(new MapBasedValueSource(m));
+
+        InterpolationState state = new InterpolationState();
+        InterpolationDeadline deadline = InterpolationDeadline.cancellable();
+        state.setDeadline(deadline);
+        assertEquals("value", interpolator.interpolate("${a}", state));
+
+        deadline.cancel();
+        state.clear();
+        InterpolationCancelledException e =
+                assertThrows(InterpolationCancelledException.class, () -> interpolator.interpolate("${a}", state));
+        assertEquals("${a}", e.getExpression());
+    }
 }
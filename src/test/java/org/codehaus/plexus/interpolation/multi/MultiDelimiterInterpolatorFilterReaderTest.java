@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.Interpolator;
 import org.codehaus.plexus.interpolation.MapBasedValueSource;
 import org.codehaus.plexus.interpolation.PrefixAwareRecursionInterceptor;
@@ -261,10 +262,112 @@ class MultiDelimiterInterpolatorFilterReaderTest {
         assertEquals("jason", interpolateMulti(foo, m, new String[] {"${*}", "@*@"}));
     }
 
+    @Test
+    void blockReadsMatchSingleCharacterReadsOnLargeInput() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("version", "1.0");
+
+        StringBuilder input = new StringBuilder();
+        while (input.length() < 256 * 1024) {
+            input.append("<project><name>${name}</name><version>@version@</version>")
+                    .append("<email>jason@example.org</email><escaped>\\${name}</escaped>")
+                    .append("<literal>plain text without any delimiter, just markup</literal></project>\n");
+        }
+
+        Interpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        MultiDelimiterInterpolatorFilterReader single =
+                new MultiDelimiterInterpolatorFilterReader(new StringReader(input.toString()), interpolator);
+        single.addDelimiterSpec("@");
+        single.setEscapeString("\\");
+        StringBuilder expected = new StringBuilder();
+        int ch;
+        while ((ch = single.read()) != -1) {
+            expected.append((char) ch);
+        }
+
+        MultiDelimiterInterpolatorFilterReader r =
+                new MultiDelimiterInterpolatorFilterReader(new StringReader(input.toString()), interpolator);
+        r.addDelimiterSpec("@");
+        r.setEscapeString("\\");
+        StringBuilder buf = new StringBuilder();
+        char[] cbuf = new char[8192];
+        int read;
+        while ((read = r.read(cbuf)) > -1) {
+            buf.append(cbuf, 0, read);
+        }
+
+        assertEquals(expected.toString(), buf.toString());
+    }
+
+    @Test
+    void unterminatedExpressionLongerThanLimitPassesThrough() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+
+        StringBuilder garbage = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            garbage.append((char) ('a' + i % 26));
+        }
+        String input = "start @" + garbage + " ${name} @name@ end";
+
+        MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+        interpolator.addDelimiterSpec("@");
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        MultiDelimiterInterpolatorFilterReader r =
+                new MultiDelimiterInterpolatorFilterReader(new StringReader(input), interpolator);
+        r.addDelimiterSpec("@");
+        r.setMaxExpressionLength(64);
+        assertEquals(64, r.getMaxExpressionLength());
+        StringBuilder buf = new StringBuilder();
+        char[] cbuf = new char[1024];
+        int read;
+        while ((read = r.read(cbuf)) > -1) {
+            buf.append(cbuf, 0, read);
+        }
+
+        assertEquals("start @" + garbage + " jason jason end", buf.toString());
+    }
+
     // ----------------------------------------------------------------------
     //
     // ----------------------------------------------------------------------
 
+    @Test
+    void interpolateWithPrefixPatternIsHonored() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+
+        Interpolator interpolator = new MultiDelimiterStringSearchInterpolator() {
+            @Override
+            public String interpolate(String input, String thisPrefixPattern, RecursionInterceptor recursionInterceptor)
+                    throws InterpolationException {
+                return "prefixed " + super.interpolate(input, thisPrefixPattern, recursionInterceptor);
+            }
+        };
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        MultiDelimiterInterpolatorFilterReader r =
+                new MultiDelimiterInterpolatorFilterReader(new StringReader("${name}"), interpolator);
+        assertEquals("prefixed jason", read(r));
+
+        r = new MultiDelimiterInterpolatorFilterReader(new StringReader("${name}"), interpolator);
+        r.setInterpolateWithPrefixPattern(false);
+        assertEquals("jason", read(r));
+    }
+
+    private static String read(MultiDelimiterInterpolatorFilterReader r) throws Exception {
+        StringBuilder buf = new StringBuilder();
+        int ch;
+        while ((ch = r.read()) != -1) {
+            buf.append((char) ch);
+        }
+        return buf.toString();
+    }
+
     private String interpolate(String input, Map<String, String> context) throws Exception {
         return interpolate(input, context, null);
     }
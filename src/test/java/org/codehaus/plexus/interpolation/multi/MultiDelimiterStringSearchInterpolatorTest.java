@@ -16,15 +16,22 @@ package org.codehaus.plexus.interpolation.multi;
  * limitations under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.codehaus.plexus.interpolation.AbstractValueSource;
+import org.codehaus.plexus.interpolation.ExpansionLimitExceededException;
 import org.codehaus.plexus.interpolation.MapBasedValueSource;
+import org.codehaus.plexus.interpolation.RecursionInterceptor;
+import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
 import org.codehaus.plexus.interpolation.ValueSource;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 
 class MultiDelimiterStringSearchInterpolatorTest {
@@ -202,4 +209,112 @@ class MultiDelimiterStringSearchInterpolatorTest {
         // In this case: 4 expressions evaluated in 2 passes = 8 calls
         assertEquals(8, valueSourceCallCount[0]);
     }
+
+    @Test
+    void resolveExpressionMatchesInterpolate() throws Exception {
+        Map<String, String> m = new HashMap<>();
+        m.put("name", "jason");
+        m.put("alias", "@name@");
+
+        MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+        interpolator.addDelimiterSpec("@");
+        interpolator.addValueSource(new MapBasedValueSource(m));
+
+        String[] inputs = {
+            "${name}", "@name@", "${alias}", "@alias@", "@unknown@", "@name@${name}", "${name}@", "@name", "@@",
+            "x@name@", "plain text"
+        };
+        for (String input : inputs) {
+            assertEquals(
+                    interpolator.interpolate(input, new SimpleRecursionInterceptor()),
+                    interpolator.resolveExpression(input, new SimpleRecursionInterceptor()),
+                    input);
+        }
+    }
+
+    @Test
+    void resolveExpressionLooksUpOnce() throws Exception {
+        final int[] valueSourceCallCount = {0};
+
+        ValueSource vs = new AbstractValueSource(false) {
+            @Override
+            public Object getValue(String expression) {
+                valueSourceCallCount[0]++;
+                return "key".equals(expression) ? "value" : null;
+            }
+        };
+
+        MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+        interpolator.addValueSource(vs);
+
+        assertEquals("value", interpolator.resolveExpression("${key}", new SimpleRecursionInterceptor()));
+        assertEquals(1, valueSourceCallCount[0]);
+    }
+
+    @Test
+    void invalidateEvictsOnlyDependentAnswers() throws Exception {
+        final Map<String, Object> m = new HashMap<>();
+        m.put("a", "${b}-x");
+        m.put("b", "@c@");
+        m.put("c", "1");
+        m.put("d", "2");
+        final List<String> lookups = new ArrayList<>();
+        ValueSource vs = new AbstractValueSource(false) {
+            @Override
+            public Object getValue(String expression) {
+                lookups.add(expression);
+                return m.get(expression);
+            }
+        };
+
+        MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator()
+                .addDelimiterSpec("@")
+                .withValueSource(vs);
+        interpolator.setCacheAnswers(true);
+        assertEquals("1-x 2", interpolator.interpolate("${a} @d@"));
+
+        m.put("c", "3");
+        lookups.clear();
+        assertEquals(3, interpolator.invalidate("c"));
+        assertEquals(0, interpolator.invalidate("c"));
+        assertEquals("3-x 2", interpolator.interpolate("${a} @d@"));
+        assertEquals(Arrays.asList("a", "b", "c"), lookups);
+        assertEquals(3, interpolator.getInvalidationCount());
+
+        assertEquals(4, interpolator.invalidate(vs));
+        assertEquals(7, interpolator.getInvalidationCount());
+    }
+
+    @Test
+    void invalidateEvictsAnswersReferencingUnresolvedExpressions() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("a", "${missing}");
+
+        MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+        interpolator.setCacheAnswers(true);
+        assertEquals("${missing}", interpolator.interpolate("${a}"));
+
+        m.put("missing", "found");
+        assertEquals(1, interpolator.invalidate("missing"));
+        assertEquals("found", interpolator.interpolate("${a}"));
+        assertEquals(1, interpolator.getInvalidationCount());
+    }
+
+    @Test
+    void expansionLimitLeavesRecursionInterceptorClean() throws Exception {
+        Map<String, Object> m = new HashMap<>();
+        m.put("a", "${b}");
+        m.put("b", "${c}");
+        m.put("c", "x");
+
+        MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+        interpolator.addValueSource(new MapBasedValueSource(m));
+        interpolator.setMaxLookups(2);
+        RecursionInterceptor ri = new SimpleRecursionInterceptor();
+        assertThrows(ExpansionLimitExceededException.class, () -> interpolator.interpolate("${a}", ri));
+
+        interpolator.setMaxLookups(-1);
+        assertEquals("x", interpolator.interpolate("${a}", ri));
+    }
 }
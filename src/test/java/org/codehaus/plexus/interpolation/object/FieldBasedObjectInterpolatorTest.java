@@ -22,12 +22,23 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.interpolation.AbstractValueSource;
+import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
+import org.codehaus.plexus.interpolation.RecursionInterceptor;
+import org.codehaus.plexus.interpolation.RegexBasedInterpolator;
 import org.codehaus.plexus.interpolation.StringSearchInterpolator;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FieldBasedObjectInterpolatorTest {
 
@@ -237,6 +248,156 @@ class FieldBasedObjectInterpolatorTest {
         assertEquals("value4", ((String[]) obj.values.get("key2"))[1]);
     }
 
+    @Test
+    void interpolateDuplicateStringsOnlyOnce() throws Exception {
+        final List<String> lookups = new ArrayList<>();
+
+        List<String> values = new ArrayList<>();
+        values.add("${key}");
+        values.add("${key}");
+        values.add("${key}");
+
+        ObjectWithListField obj = new ObjectWithListField(values);
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator();
+        interpolator.addValueSource(new AbstractValueSource(false) {
+            public Object getValue(String expression) {
+                lookups.add(expression);
+                return "value";
+            }
+        });
+
+        new FieldBasedObjectInterpolator().interpolate(obj, interpolator);
+
+        assertEquals("value", obj.values.get(0));
+        assertEquals("value", obj.values.get(1));
+        assertEquals("value", obj.values.get(2));
+        assertEquals(Collections.singletonList("key"), lookups);
+    }
+
+    @Test
+    void skipStringsWithoutExpressionStartToken() throws Exception {
+        final List<String> inputs = new ArrayList<>();
+
+        String[] values = {"plain", "${key}"};
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator() {
+            public String interpolate(String input, RecursionInterceptor ri) throws InterpolationException {
+                inputs.add(input);
+                return super.interpolate(input, ri);
+            }
+        };
+        Properties p = new Properties();
+        p.setProperty("key", "value");
+        interpolator.addValueSource(new PropertiesBasedValueSource(p));
+
+        FieldBasedObjectInterpolator objectInterpolator = new FieldBasedObjectInterpolator();
+        objectInterpolator.setExpressionStartTokens(Collections.singleton("${"));
+        objectInterpolator.interpolate(values, interpolator);
+
+        assertEquals("plain", values[0]);
+        assertEquals("value", values[1]);
+        assertEquals(Collections.singletonList("${key}"), inputs);
+    }
+
+    @Test
+    void skipStringsWithoutInterpolatorStartTokenByDefault() throws Exception {
+        final List<String> inputs = new ArrayList<>();
+
+        String[] values = {"plain", "${key}", "@key@"};
+
+        StringSearchInterpolator interpolator = new StringSearchInterpolator("@", "@") {
+            public String interpolate(String input, RecursionInterceptor ri) throws InterpolationException {
+                inputs.add(input);
+                return super.interpolate(input, ri);
+            }
+        };
+        Properties p = new Properties();
+        p.setProperty("key", "value");
+        interpolator.addValueSource(new PropertiesBasedValueSource(p));
+
+        new FieldBasedObjectInterpolator().interpolate(values, interpolator);
+
+        assertEquals("plain", values[0]);
+        assertEquals("${key}", values[1]);
+        assertEquals("value", values[2]);
+        assertEquals(Collections.singletonList("@key@"), inputs);
+    }
+
+    @Test
+    void interpolateEveryStringForOtherInterpolatorsByDefault() throws Exception {
+        String[] values = {"@key@", "${key}"};
+
+        Properties p = new Properties();
+        p.setProperty("key", "value");
+        RegexBasedInterpolator interpolator = new RegexBasedInterpolator("\\@", "(.+?)\\@");
+        interpolator.addValueSource(new PropertiesBasedValueSource(p));
+
+        new FieldBasedObjectInterpolator().interpolate(values, interpolator);
+
+        assertEquals("value", values[0]);
+        assertEquals("${key}", values[1]);
+    }
+
+    @Test
+    void interpolateConcurrentlyWhileClearingCaches() throws Exception {
+        final Properties p = new Properties();
+        p.setProperty("key", "value");
+        p.setProperty("key2", "value2");
+
+        final int threads = 16;
+        final int iterations = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < iterations; i++) {
+                            if (thread == 0 && i % 10 == 0) {
+                                FieldBasedObjectInterpolator.clearCaches();
+                            }
+
+                            StringSearchInterpolator interpolator = new StringSearchInterpolator();
+                            interpolator.addValueSource(new PropertiesBasedValueSource(p));
+
+                            List<String> list = new ArrayList<>();
+                            list.add("${key}");
+                            Map<String, String> map = new HashMap<>();
+                            map.put("k", "${key2}");
+                            ObjectWithStringArrayField arrayObj =
+                                    new ObjectWithStringArrayField(new String[] {"${key}", "${key2}"});
+                            ObjectWithListField listObj = new ObjectWithListField(list);
+                            ObjectWithMapField mapObj = new ObjectWithMapField(map);
+
+                            FieldBasedObjectInterpolator objectInterpolator = new FieldBasedObjectInterpolator();
+                            objectInterpolator.interpolate(arrayObj, interpolator);
+                            objectInterpolator.interpolate(listObj, interpolator);
+                            objectInterpolator.interpolate(mapObj, interpolator);
+
+                            assertEquals("value", arrayObj.values[0]);
+                            assertEquals("value2", arrayObj.values[1]);
+                            assertEquals("value", listObj.values.get(0));
+                            assertEquals("value2", mapObj.values.get("k"));
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
     private static final class ObjectWithStringArrayField {
         private final String[] values;
 
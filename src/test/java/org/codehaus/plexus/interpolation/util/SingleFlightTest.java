@@ -0,0 +1,51 @@
+package org.codehaus.plexus.interpolation.util;
+
+/*
+ * Copyright 2001-2008 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void expiredResultsAreSweptAsNewKeysAreAdded() throws Exception {
+        SingleFlight<Integer, String> flights = new SingleFlight<>(1, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 1000; i++) {
+            flights.get(i, String::valueOf);
+        }
+        Thread.sleep(5);
+        for (int i = 1000; i < 3000; i++) {
+            assertEquals(String.valueOf(i), flights.get(i, String::valueOf));
+        }
+        assertTrue(flights.size() < 3000, "expired results were kept: " + flights.size());
+    }
+
+    @Test
+    void resultsAreRememberedUntilTheyExpire() {
+        SingleFlight<String, Object> flights = new SingleFlight<>(1, TimeUnit.HOURS);
+        Object first = flights.get("key", key -> new Object());
+        for (int i = 0; i < 1000; i++) {
+            flights.get("key" + i, key -> key);
+        }
+        assertTrue(first == flights.get("key", key -> new Object()));
+        assertEquals(1001, flights.size());
+    }
+}